@@ -0,0 +1,308 @@
+package de.rsh.game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * textures in a file, read through FileChannel.map: opening a pack maps the index only, the texels of a texture are
+ * mapped when they are asked for the first time and handed out as read only IntBuffer views of the mapping, no copy
+ * on the heap. a pack with hundreds of textures opens as fast as one with a single texture.
+ *
+ * the packer also stores every texture palette indexed (IndexedTexture), with its mip levels when the size is a
+ * power of two, so the renderer maps the palettes and indices ready to shade instead of quantizing at the start.
+ *
+ * file layout, little endian: header of HEADER_BYTES (magic, version, texture count as ints), the index with
+ * ENTRY_BYTES per texture (name as NAME_BYTES of zero padded UTF-8, width, height, number of indexed levels, bit l
+ * set for a quantized level l as ints, offsets of the texels and of the indexed levels in the file as longs), sorted
+ * by name, then the blocks, each starting on a BLOCK_ALIGN boundary. the texels of a texture are argb ints, column
+ * major like TextureAtlas: texel (u, v) is at u*height + v. the indexed block holds the levels one after the other,
+ * each on a BLOCK_ALIGN boundary: the PALETTE_SIZE palette entries as ints, then the max(1, width >> l) x
+ * max(1, height >> l) indices as bytes, column major.
+ *
+ * the ids of a pack are the positions in the index, the textures sorted by name.
+ */
+public final class AssetPack implements AutoCloseable {
+    public static final int MAGIC = 0x52594354; // "RYCT"
+    public static final int VERSION = 2; // 2: palette indexed mip levels
+    public static final int HEADER_BYTES = 16;
+    public static final int NAME_BYTES = 32;
+    public static final int ENTRY_BYTES = NAME_BYTES + 32;
+    public static final int BLOCK_ALIGN = 64; // a cache line
+
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final int count;
+    private final AtomicReferenceArray<IntBuffer> texels;
+    private final AtomicReferenceArray<ByteBuffer> indexed;
+
+    private AssetPack(FileChannel channel, MappedByteBuffer index, int count) {
+        this.channel = channel;
+        this.index = index;
+        this.count = count;
+        this.texels = new AtomicReferenceArray<>(count);
+        this.indexed = new AtomicReferenceArray<>(count);
+    }
+
+    public static AssetPack open(Path file) {
+        try {
+            var channel = FileChannel.open(file, StandardOpenOption.READ);
+            var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IllegalArgumentException(file + " is no asset pack of version " + VERSION);
+            }
+            var count = header.getInt();
+            if(count < 0 || HEADER_BYTES + (long)count*ENTRY_BYTES > channel.size()) {
+                channel.close();
+                throw new IllegalArgumentException(file + " has a broken index");
+            }
+            var index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long)count*ENTRY_BYTES);
+            index.order(ByteOrder.LITTLE_ENDIAN);
+            return new AssetPack(channel, index, count);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * writes the textures (row major like Texture.Image) into a new pack, the names have at most NAME_BYTES bytes of
+     * UTF-8. converts every texture and its mip levels to IndexedTextures, the work the renderer does not have to do
+     */
+    public static void write(Path file, Map<String, Texture.Image> textures) {
+        var names = textures.keySet().stream().sorted().toList();
+        var offset = align(HEADER_BYTES + (long)names.size()*ENTRY_BYTES);
+        var head = ByteBuffer.allocate(HEADER_BYTES + names.size()*ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).putInt(names.size()).putInt(0);
+        var offsets = new long[names.size()];
+        var indexedOffsets = new long[names.size()];
+        var indexed = new IndexedTexture[names.size()][];
+        for(int id=0; id<names.size(); id++) {
+            var name = names.get(id).getBytes(StandardCharsets.UTF_8);
+            if(name.length == 0 || name.length > NAME_BYTES) {
+                throw new IllegalArgumentException("texture names need 1 to " + NAME_BYTES + " bytes, got " + names.get(id));
+            }
+            var image = textures.get(names.get(id));
+            indexed[id] = indexedLevels(image);
+            var quantized = 0;
+            for(int level=0; level<indexed[id].length; level++) {
+                if(indexed[id][level].quantized()) quantized |= 1 << level;
+            }
+            offsets[id] = offset;
+            indexedOffsets[id] = align(offset + 4L*image.width()*image.height());
+            offset = indexedOffsets[id] + indexedBytes(image.width(), image.height(), indexed[id].length);
+            head.put(Arrays.copyOf(name, NAME_BYTES)).putInt(image.width()).putInt(image.height())
+                .putInt(indexed[id].length).putInt(quantized).putLong(offsets[id]).putLong(indexedOffsets[id]);
+        }
+        try(var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                           StandardOpenOption.WRITE)) {
+            channel.write(head.flip(), 0);
+            for(int id=0; id<names.size(); id++) {
+                var image = textures.get(names.get(id));
+                var block = ByteBuffer.allocate(4*image.width()*image.height()).order(ByteOrder.LITTLE_ENDIAN);
+                for(int u=0; u<image.width(); u++) {
+                    for(int v=0; v<image.height(); v++) {
+                        block.putInt(image.pix(u, v));
+                    }
+                }
+                channel.write(block.flip(), offsets[id]);
+                var levels = ByteBuffer.allocate((int)indexedBytes(image.width(), image.height(), indexed[id].length))
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+                for(int level=0; level<indexed[id].length; level++) {
+                    levels.position((int)levelOffset(image.width(), image.height(), level));
+                    for(var entry : indexed[id][level].palette()) levels.putInt(entry);
+                    levels.put(indexed[id][level].indices().duplicate());
+                }
+                channel.write(levels.clear(), indexedOffsets[id]);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * the image as IndexedTextures, the mip levels too when width and height are powers of two
+     */
+    private static IndexedTexture[] indexedLevels(Texture.Image image) {
+        var texels = new int[image.width()*image.height()];
+        for(int u=0; u<image.width(); u++) {
+            for(int v=0; v<image.height(); v++) {
+                texels[u*image.height() + v] = image.pix(u, v);
+            }
+        }
+        if(Integer.bitCount(image.width()) != 1 || Integer.bitCount(image.height()) != 1) {
+            return new IndexedTexture[] { IndexedTexture.of(image.width(), image.height(), texels) };
+        }
+        // column major w x h is row major with h texels per row and w rows
+        var chain = new MipMap(texels, image.height(), image.width());
+        var levels = new IndexedTexture[chain.levels()];
+        for(int level=0; level<levels.length; level++) {
+            levels[level] = IndexedTexture.of(levelSize(image.width(), level), levelSize(image.height(), level), chain.level(level));
+        }
+        return levels;
+    }
+
+    private static int levelSize(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    /**
+     * offset of indexed level in the indexed block of a width x height texture
+     */
+    private static long levelOffset(int width, int height, int level) {
+        long offset = 0;
+        for(int l=0; l<level; l++) {
+            offset = align(offset + 4L*IndexedTexture.PALETTE_SIZE + (long)levelSize(width, l)*levelSize(height, l));
+        }
+        return offset;
+    }
+
+    private static long indexedBytes(int width, int height, int levels) {
+        var last = levels - 1;
+        return levelOffset(width, height, last) + 4L*IndexedTexture.PALETTE_SIZE + (long)levelSize(width, last)*levelSize(height, last);
+    }
+
+    private static long align(long offset) {
+        return (offset + BLOCK_ALIGN - 1) & -BLOCK_ALIGN;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public String name(int id) {
+        var name = new byte[NAME_BYTES];
+        index.get(id*ENTRY_BYTES, name);
+        var length = 0;
+        while(length < NAME_BYTES && name[length] != 0) length++;
+        return new String(name, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public List<String> names() {
+        var names = new ArrayList<String>(count);
+        for(int id=0; id<count; id++) names.add(name(id));
+        return names;
+    }
+
+    public int width(int id) {
+        return index.getInt(id*ENTRY_BYTES + NAME_BYTES);
+    }
+
+    public int height(int id) {
+        return index.getInt(id*ENTRY_BYTES + NAME_BYTES + 4);
+    }
+
+    /**
+     * id of the texture called name, a binary search in the index
+     */
+    public Optional<Integer> id(String name) {
+        int low = 0, high = count - 1;
+        while(low <= high) {
+            var mid = (low + high) >>> 1;
+            var cmp = name(mid).compareTo(name);
+            if(cmp < 0) low = mid + 1;
+            else if(cmp > 0) high = mid - 1;
+            else return Optional.of(mid);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * the texels of texture id, column major, a read only view of the mapping. the first call maps the block
+     */
+    public IntBuffer texels(int id) {
+        var block = texels.get(id);
+        if(block == null) {
+            try {
+                var offset = index.getLong(id*ENTRY_BYTES + NAME_BYTES + 16);
+                var mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L*width(id)*height(id));
+                block = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            texels.compareAndSet(id, null, block); // a racing thread maps the same block, one mapping wins
+            block = texels.get(id);
+        }
+        return block.asReadOnlyBuffer(); // own position and limit for every caller
+    }
+
+    /**
+     * number of indexed levels of texture id: the mip levels down to 1x1 when the size is a power of two, else 1
+     */
+    public int levels(int id) {
+        return index.getInt(id*ENTRY_BYTES + NAME_BYTES + 8);
+    }
+
+    /**
+     * the indexed levels of texture id, IndexedTextures reading the mapping, no copy. the first call maps the block,
+     * the textures stay valid when the pack is closed
+     */
+    public IndexedTexture[] indexed(int id) {
+        var width = width(id);
+        var height = height(id);
+        var levels = levels(id);
+        var block = indexed.get(id);
+        if(block == null) {
+            try {
+                var offset = index.getLong(id*ENTRY_BYTES + NAME_BYTES + 24);
+                block = channel.map(FileChannel.MapMode.READ_ONLY, offset, indexedBytes(width, height, levels));
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indexed.compareAndSet(id, null, block); // a racing thread maps the same block, one mapping wins
+            block = indexed.get(id);
+        }
+        var quantized = index.getInt(id*ENTRY_BYTES + NAME_BYTES + 12);
+        var textures = new IndexedTexture[levels];
+        for(int level=0; level<levels; level++) {
+            var w = levelSize(width, level);
+            var h = levelSize(height, level);
+            var palette = (int)levelOffset(width, height, level);
+            var paletteBytes = 4*IndexedTexture.PALETTE_SIZE;
+            textures[level] = new IndexedTexture(w, h, block.slice(palette + paletteBytes, w*h),
+                                                 block.slice(palette, paletteBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                                                 (quantized & (1 << level)) != 0);
+        }
+        return textures;
+    }
+
+    /**
+     * texture id as a Texture.Image, a copy on the heap
+     */
+    public Texture.Image image(int id) {
+        var width = width(id);
+        var height = height(id);
+        var columns = texels(id);
+        var rows = new int[width*height];
+        for(int u=0; u<width; u++) {
+            for(int v=0; v<height; v++) {
+                rows[v*width + u] = columns.get(u*height + v);
+            }
+        }
+        return new Texture.Image(width, height, rows);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close(); // the mappings stay valid until the buffers are collected
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package de.rsh.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * palettes for indexed textures. a texture with at most maxColors colours gets exactly its colours, a texture with
+ * more is reduced by median cut: the colours (weighted by their number of texels) start in one box, the box with the
+ * widest channel is split at the weighted median of that channel until there are maxColors boxes, the palette
+ * holds the weighted mean of every box. alpha is a channel like red, green and blue.
+ */
+public final class ColorQuantizer {
+    private ColorQuantizer() {
+    }
+
+    /**
+     * palette of texels[from, to), at most maxColors entries
+     */
+    public static int[] palette(int[] texels, int from, int to, int maxColors) {
+        if(maxColors < 1) throw new IllegalArgumentException("a palette needs at least one colour, got " + maxColors);
+        // distinct colours with their counts, as (count << 32 | colour)
+        var sorted = Arrays.copyOfRange(texels, from, to);
+        Arrays.sort(sorted);
+        var entries = new long[sorted.length];
+        var count = 0;
+        for(int i=0; i<sorted.length;) {
+            var j = i;
+            while(j < sorted.length && sorted[j] == sorted[i]) j++;
+            entries[count++] = ((long)(j - i) << 32) | (sorted[i] & 0xFFFFFFFFL);
+            i = j;
+        }
+        if(count <= maxColors) {
+            var palette = new int[count];
+            for(int i=0; i<count; i++) palette[i] = (int)entries[i];
+            return palette;
+        }
+        var keys = new long[count]; // scratch of sortByChannel
+        var boxes = new ArrayList<Box>();
+        boxes.add(Box.of(entries, 0, count));
+        while(boxes.size() < maxColors) {
+            var widest = -1;
+            for(int b=0; b<boxes.size(); b++) {
+                if(boxes.get(b).spread() > (widest < 0 ? 0 : boxes.get(widest).spread())) widest = b;
+            }
+            if(widest < 0) break; // every box holds one colour
+            var box = boxes.get(widest);
+            sortByChannel(entries, box.from(), box.to(), box.shift(), keys);
+            long total = 0;
+            for(int i=box.from(); i<box.to(); i++) total += entries[i] >>> 32;
+            long sum = 0;
+            var split = box.from() + 1;
+            for(int i=box.from(); i<box.to() - 1; i++) {
+                sum += entries[i] >>> 32;
+                split = i + 1;
+                if(2*sum >= total) break;
+            }
+            boxes.set(widest, Box.of(entries, box.from(), split));
+            boxes.add(Box.of(entries, split, box.to()));
+        }
+        var palette = new int[boxes.size()];
+        for(int b=0; b<boxes.size(); b++) {
+            palette[b] = mean(entries, boxes.get(b));
+        }
+        return palette;
+    }
+
+    /**
+     * index of the nearest palette entry of every texel of texels[from, to). every distinct colour is looked up in
+     * the palette once, the texels find their colour by a binary search in the sorted distinct colours
+     */
+    public static byte[] indices(int[] texels, int from, int to, int[] palette) {
+        if(palette.length > 256) throw new IllegalArgumentException("byte indices address 256 colours, got " + palette.length);
+        var colors = Arrays.copyOfRange(texels, from, to);
+        Arrays.sort(colors);
+        var count = 0;
+        for(int i=0; i<colors.length; i++) {
+            if(i == 0 || colors[i] != colors[count - 1]) colors[count++] = colors[i];
+        }
+        var nearest = new byte[count];
+        for(int i=0; i<count; i++) nearest[i] = (byte)nearest(palette, colors[i]);
+        var indices = new byte[to - from];
+        for(int i=from; i<to; i++) {
+            indices[i - from] = nearest[Arrays.binarySearch(colors, 0, count, texels[i])];
+        }
+        return indices;
+    }
+
+    /**
+     * index of the palette entry nearest to argb, squared distance over the four channels
+     */
+    public static int nearest(int[] palette, int argb) {
+        var best = 0;
+        var bestDist = Long.MAX_VALUE;
+        for(int i=0; i<palette.length; i++) {
+            long dist = 0;
+            for(int shift=0; shift<32; shift+=8) {
+                var d = ((palette[i] >>> shift) & 0xFF) - ((argb >>> shift) & 0xFF);
+                dist += d*d;
+            }
+            if(dist < bestDist) {
+                best = i;
+                bestDist = dist;
+                if(dist == 0) break;
+            }
+        }
+        return best;
+    }
+
+    private static int channel(long entry, int shift) {
+        return (int)(entry >>> shift) & 0xFF;
+    }
+
+    /**
+     * entries[from, to) with the spread of their widest channel, the lowest channel of equal spreads
+     */
+    private record Box(int from, int to, int shift, int spread) {
+        static Box of(long[] entries, int from, int to) {
+            int widestShift = 0, widestSpread = 0;
+            for(int shift=0; shift<32; shift+=8) {
+                int min = 255, max = 0;
+                for(int i=from; i<to; i++) {
+                    var c = channel(entries[i], shift);
+                    min = Math.min(min, c);
+                    max = Math.max(max, c);
+                }
+                if(max - min > widestSpread) {
+                    widestShift = shift;
+                    widestSpread = max - min;
+                }
+            }
+            return new Box(from, to, widestShift, widestSpread);
+        }
+    }
+
+    /**
+     * stable sort of entries[from, to) by one channel: the keys (channel << 32 | position) sort like the entries
+     */
+    private static void sortByChannel(long[] entries, int from, int to, int shift, long[] keys) {
+        for(int i=from; i<to; i++) keys[i] = ((long)channel(entries[i], shift) << 32) | (i - from);
+        Arrays.sort(keys, from, to);
+        var sorted = new long[to - from];
+        for(int i=from; i<to; i++) sorted[i - from] = entries[from + (int)keys[i]];
+        System.arraycopy(sorted, 0, entries, from, sorted.length);
+    }
+
+    private static int mean(long[] entries, Box box) {
+        var color = 0;
+        for(int shift=0; shift<32; shift+=8) {
+            long sum = 0, count = 0;
+            for(int i=box.from(); i<box.to(); i++) {
+                var n = entries[i] >>> 32;
+                sum += n*channel(entries[i], shift);
+                count += n;
+            }
+            color |= (int)((sum + count/2)/count) << shift;
+        }
+        return color;
+    }
+}
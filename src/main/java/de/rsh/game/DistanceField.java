@@ -0,0 +1,185 @@
+package de.rsh.game;
+
+/**
+ * chebyshev (chessboard) distance of every grid cell to the nearest solid cell, capped at MAX_DIST.
+ * a cell with distance d has only empty cells within the square of radius d-1 around it, so a ray in that
+ * cell can jump to the border of the square without testing the cells in between (empty space skipping).
+ * cells outside of the grid count as solid, so the square never leaves the grid.
+ *
+ * the field has to follow the grid: call update(x,y) whenever cell (x,y) changes, only the cells in reach of
+ * MAX_DIST are recalculated.
+ */
+public final class DistanceField implements RayCaster.IntIntPredicate {
+    public static final int MAX_DIST = 16;
+
+    private final int width;
+    private final int height;
+    private final byte[] dist; // row major
+    private final RayCaster.IntIntPredicate solid;
+
+    /**
+     * @param solid hit test of the grid, true for cells a ray stops at
+     */
+    public DistanceField(int width, int height, RayCaster.IntIntPredicate solid) {
+        this.width = width;
+        this.height = height;
+        this.dist = new byte[width*height];
+        this.solid = solid;
+        rebuild();
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return distance of cell (x,y) to the nearest solid cell, 0 for solid cells and cells outside the grid
+     */
+    public int dist(int x, int y) {
+        if(x < 0 || y < 0 || x >= width || y >= height) return 0;
+        return dist[y*width + x];
+    }
+
+    /**
+     * hit test on the field, the same as the hit test of the grid as long as the field is kept up to date
+     */
+    @Override
+    public boolean test(int x, int y) {
+        return dist(x, y) == 0;
+    }
+
+    /**
+     * recalculates the whole field with the two pass chessboard distance transform
+     */
+    public void rebuild() {
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                var d = solid.test(x, y) ? 0 : MAX_DIST;
+                d = Math.min(d, dist(x-1, y) + 1);
+                d = Math.min(d, dist(x-1, y-1) + 1);
+                d = Math.min(d, dist(x, y-1) + 1);
+                d = Math.min(d, dist(x+1, y-1) + 1);
+                dist[y*width + x] = (byte)d;
+            }
+        }
+        for(int y=height-1; y>=0; y--) {
+            for(int x=width-1; x>=0; x--) {
+                var d = (int)dist[y*width + x];
+                d = Math.min(d, dist(x+1, y) + 1);
+                d = Math.min(d, dist(x+1, y+1) + 1);
+                d = Math.min(d, dist(x, y+1) + 1);
+                d = Math.min(d, dist(x-1, y+1) + 1);
+                dist[y*width + x] = (byte)d;
+            }
+        }
+    }
+
+    /**
+     * cell (x,y) was changed, recalculates all cells whose distance can depend on it
+     */
+    public void update(int x, int y) {
+        for(int cy=Math.max(0, y-MAX_DIST+1); cy<Math.min(height, y+MAX_DIST); cy++) {
+            for(int cx=Math.max(0, x-MAX_DIST+1); cx<Math.min(width, x+MAX_DIST); cx++) {
+                dist[cy*width + cx] = (byte)nearestSolid(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * searches the rings around (x,y) from the inside out
+     */
+    private int nearestSolid(int x, int y) {
+        if(solid.test(x, y)) return 0;
+        for(int r=1; r<MAX_DIST; r++) {
+            if(y-r < 0 || y+r >= height || x-r < 0 || x+r >= width) return r; // outside counts as solid
+            for(int i=-r; i<=r; i++) {
+                if(solid.test(x+i, y-r) || solid.test(x+i, y+r) || solid.test(x-r, y+i) || solid.test(x+r, y+i)) {
+                    return r;
+                }
+            }
+        }
+        return MAX_DIST;
+    }
+
+    /**
+     * lodev's DDA (see RayCaster.castRay_lodev) which jumps over empty squares of the field.
+     * inside a square of radius r = dist-1 the ray crosses every x and y border whose distance is below the exit
+     * distance of the square in one go. sideDist stays the distance along the ray, so the hit and perpDist are the
+     * same as without skipping (up to rounding, the jumps multiply where the DDA adds).
+     * @return number of steps taken, a jump counts as one step
+     */
+    public int castRay_lodev(int x, int w,
+                             double posX, double posY,
+                             double dirX, double dirY,
+                             double planeX, double planeY,
+                             RayHitBuffer buf) {
+        var cameraX = (2.0 * (double)x / (double)w) - 1.0;
+        var rayDirX = dirX + planeX * cameraX;
+        var rayDirY = dirY + planeY * cameraX;
+        var mapX = (int)posX;
+        var mapY = (int)posY;
+        var deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1.0 / rayDirX);
+        var deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1.0 / rayDirY);
+        int stepX, stepY;
+        double sideDistX, sideDistY;
+        if(rayDirX < 0) {
+            stepX = -1;
+            sideDistX = (posX - mapX) * deltaDistX;
+        } else {
+            stepX = 1;
+            sideDistX = (mapX + 1.0 - posX) * deltaDistX;
+        }
+        if(rayDirY < 0) {
+            stepY = -1;
+            sideDistY = (posY - mapY) * deltaDistY;
+        } else {
+            stepY = 1;
+            sideDistY = (mapY + 1.0 - posY) * deltaDistY;
+        }
+        var absRayDirX = Math.abs(rayDirX); // 1/deltaDist, multiply instead of divide when jumping
+        var absRayDirY = Math.abs(rayDirY);
+        var side = 0;
+        var steps = 0;
+        var hitWall = false;
+        while(!hitWall) {
+            steps++;
+            var r = dist[mapY*width + mapX] - 1; // the ray never leaves the grid, the border is solid
+            if(r >= 2) { // jumping over a single cell costs more than stepping
+                // jump to the last cell of the empty square before the ray leaves it
+                var exit = Math.min(sideDistX + r*deltaDistX, sideDistY + r*deltaDistY);
+                var nx = crossings(exit - sideDistX, absRayDirX, r);
+                var ny = crossings(exit - sideDistY, absRayDirY, r);
+                mapX += nx*stepX;
+                mapY += ny*stepY;
+                sideDistX += nx*deltaDistX;
+                sideDistY += ny*deltaDistY;
+                if(nx > 0 || ny > 0) continue; // still empty, no hit test needed
+            }
+            if(sideDistX < sideDistY) {
+                sideDistX += deltaDistX;
+                mapX += stepX;
+                side = 0;
+            } else {
+                sideDistY += deltaDistY;
+                mapY += stepY;
+                side = 1;
+            }
+            hitWall = test(mapX, mapY);
+        }
+        var perpWallDist = side == 0 ? sideDistX - deltaDistX : sideDistY - deltaDistY;
+        RayCaster.setHit_lodev(buf, x, posX, posY, rayDirX, rayDirY, side, mapX, mapY, perpWallDist);
+        return steps;
+    }
+
+    /**
+     * number of grid borders at distance 0, deltaDist, 2*deltaDist, ... (measured from the next border)
+     * which are closer than dist, at most r
+     */
+    private static int crossings(double dist, double absRayDir, int r) {
+        return Math.min(r, (int)Math.ceil(Math.max(0, dist*absRayDir)));
+    }
+}
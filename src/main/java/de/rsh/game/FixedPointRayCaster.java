@@ -0,0 +1,74 @@
+package de.rsh.game;
+
+/**
+ * lodev's DDA (see RayCaster.castRay_lodev) in 32.32 fixed point. the reciprocal deltas and the first side
+ * distances are set up per ray in double, the step loop only adds and compares longs.
+ *
+ * 16.16 in an int does not fit: deltaDist of a nearly axis parallel ray is far beyond 2^15 cells. deltaDist is
+ * capped at MAX_DELTA cells instead of 1e30, which only matters for rays longer than a million cells.
+ * the hits are the same as with doubles except for rays which pass (nearly) exactly through a grid corner, there
+ * the rounding can pick the other side.
+ */
+final class FixedPointRayCaster {
+    static final int FRAC_BITS = 32;
+    private static final double ONE = 1L << FRAC_BITS;
+    private static final double MAX_DELTA = 1 << 20; // cells, keeps sideDist far away from overflow
+
+    private FixedPointRayCaster() { }
+
+    static void castColumns(int from, int to, int width,
+                            double posX, double posY,
+                            double dirX, double dirY,
+                            double planeX, double planeY,
+                            RayCaster.IntIntPredicate hit, RayHitBuffer buf) {
+        for(int x = from; x < to; x++) {
+            castRay_lodev(x, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf);
+        }
+    }
+
+    /**
+     * @return number of DDA steps
+     */
+    static int castRay_lodev(int x, int w,
+                             double posX, double posY,
+                             double dirX, double dirY,
+                             double planeX, double planeY,
+                             RayCaster.IntIntPredicate hit, RayHitBuffer buf) {
+        var cameraX = (2.0 * (double)x / (double)w) - 1.0;
+        var rayDirX = dirX + planeX * cameraX;
+        var rayDirY = dirY + planeY * cameraX;
+        var mapX = (int)posX;
+        var mapY = (int)posY;
+        var deltaX = (rayDirX == 0) ? MAX_DELTA : Math.min(MAX_DELTA, Math.abs(1.0 / rayDirX));
+        var deltaY = (rayDirY == 0) ? MAX_DELTA : Math.min(MAX_DELTA, Math.abs(1.0 / rayDirY));
+        var stepX = rayDirX < 0 ? -1 : 1;
+        var stepY = rayDirY < 0 ? -1 : 1;
+        long deltaDistX = fixed(deltaX);
+        long deltaDistY = fixed(deltaY);
+        long sideDistX = fixed((rayDirX < 0 ? posX - mapX : mapX + 1.0 - posX) * deltaX);
+        long sideDistY = fixed((rayDirY < 0 ? posY - mapY : mapY + 1.0 - posY) * deltaY);
+        var side = 0;
+        var steps = 0;
+        var hitWall = false;
+        while(!hitWall) {
+            steps++;
+            if(sideDistX < sideDistY) {
+                sideDistX += deltaDistX;
+                mapX += stepX;
+                side = 0;
+            } else {
+                sideDistY += deltaDistY;
+                mapY += stepY;
+                side = 1;
+            }
+            hitWall = hit.test(mapX, mapY);
+        }
+        var perpWallDist = (side == 0 ? sideDistX - deltaDistX : sideDistY - deltaDistY) / ONE;
+        RayCaster.setHit_lodev(buf, x, posX, posY, rayDirX, rayDirY, side, mapX, mapY, perpWallDist);
+        return steps;
+    }
+
+    private static long fixed(double d) {
+        return (long)(d * ONE);
+    }
+}
@@ -0,0 +1,93 @@
+package de.rsh.game;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * a texture with 8 bit texels: one byte per texel, an index into the palette of the texture, column major like
+ * TextureAtlas: texel (u, v) is palette().get(indices().get(u*height() + v) & 0xFF). the palette has PALETTE_SIZE
+ * entries, unused ones are 0.
+ *
+ * a quarter of the bytes of the argb texture, and light levels only need shaded palettes (a ShadeTable over the
+ * palette) instead of shaded copies of the texture. textures with more than PALETTE_SIZE colours are quantized
+ * (ColorQuantizer), the others keep their exact colours. the buffers are read only views, on the heap for converted
+ * textures or of the mapping of an AssetPack, which stores the textures indexed (AssetPack.indexed).
+ */
+public final class IndexedTexture {
+    public static final int PALETTE_SIZE = 256;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer indices;
+    private final IntBuffer palette;
+    private final boolean quantized;
+
+    /**
+     * @param indices width*height palette indices, column major
+     * @param palette PALETTE_SIZE argb entries
+     */
+    public IndexedTexture(int width, int height, ByteBuffer indices, IntBuffer palette, boolean quantized) {
+        if(indices.remaining() < width*height || palette.remaining() < PALETTE_SIZE) {
+            throw new IllegalArgumentException(String.format("%d indices and %d palette entries for a %dx%d texture",
+                                                             indices.remaining(), palette.remaining(), width, height));
+        }
+        this.width = width;
+        this.height = height;
+        this.indices = indices.slice().asReadOnlyBuffer();
+        this.palette = palette.slice().asReadOnlyBuffer();
+        this.quantized = quantized;
+    }
+
+    /**
+     * converts the argb texels of a width x height texture, column major
+     */
+    public static IndexedTexture of(int width, int height, int[] texels) {
+        var palette = ColorQuantizer.palette(texels, 0, width*height, PALETTE_SIZE);
+        var indices = ColorQuantizer.indices(texels, 0, width*height, palette);
+        var quantized = false;
+        for(int i=0; i<indices.length && !quantized; i++) {
+            quantized = palette[indices[i] & 0xFF] != texels[i];
+        }
+        var entries = new int[PALETTE_SIZE];
+        System.arraycopy(palette, 0, entries, 0, palette.length);
+        return new IndexedTexture(width, height, ByteBuffer.wrap(indices), IntBuffer.wrap(entries), quantized);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * the palette indices, column major, read only and not a copy. index them with the absolute get
+     */
+    public ByteBuffer indices() {
+        return indices;
+    }
+
+    /**
+     * the PALETTE_SIZE palette entries in a new array
+     */
+    public int[] palette() {
+        var entries = new int[PALETTE_SIZE];
+        palette.get(0, entries);
+        return entries;
+    }
+
+    /**
+     * true when the texture had more colours than a palette holds and its texels were mapped to the nearest ones
+     */
+    public boolean quantized() {
+        return quantized;
+    }
+
+    /**
+     * the argb texel (u, v), through the palette
+     */
+    public int pix(int u, int v) {
+        return palette.get(indices.get(u*height + v) & 0xFF);
+    }
+}
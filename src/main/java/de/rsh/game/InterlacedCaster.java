@@ -0,0 +1,178 @@
+package de.rsh.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.rsh.rycst.game.GameState;
+
+/**
+ * interlaced version of RayCaster.castColumns: a frame casts every factor-th column (frame k the columns with
+ * x % factor == k % factor) and reprojects the others from the previous frame.
+ *
+ * reprojection: the hit points of the previous frame are world positions, they are projected into the columns of
+ * the current camera (the inverse of the ray directions of castColumns) and the nearest point lands in the column,
+ * with its perpendicular distance to the current camera plane. a column without a reprojected point (it was behind
+ * the old frame's edge or behind a wall) is cast. every column is cast at least every factor frames, so errors of
+ * the reprojection, e.g. a point not quite on the column ray, do not pile up.
+ *
+ * a frame is cast completely when there is no previous one, the number of columns or the camera plane changed, the
+ * camera turned more than MAX_TURN or moved more than MAX_MOVE cells (teleport).
+ *
+ * not thread safe, one instance per hit buffer. the columns of a frame are cast in bands.
+ */
+public final class InterlacedCaster {
+    public static final double MAX_TURN = 0.2; // radians between two frames
+    public static final double MAX_MOVE = 1.0; // cells between two frames
+
+    private final int factor;
+    private final RayHitBuffer previous = new RayHitBuffer(0);
+    private boolean hasPrevious = false;
+    private double prevPosX, prevPosY, prevDirX, prevDirY, prevPlaneX, prevPlaneY;
+    private long frame = 0;
+    private int[] source = new int[0]; // per column the previous column reprojected into it, -1 for none
+    private double[] depth = new double[0];
+
+    private final AtomicLong raysCast = new AtomicLong();
+    private final AtomicLong raysSaved = new AtomicLong();
+    private long fullFrames = 0;
+
+    /**
+     * @param factor 1 casts every column every frame, 2 every other column, ...
+     */
+    public InterlacedCaster(int factor) {
+        if(factor < 1) throw new IllegalArgumentException("interlace factor must be at least 1, got " + factor);
+        this.factor = factor;
+    }
+
+    public int factor() {
+        return factor;
+    }
+
+    /**
+     * rays cast since the start
+     */
+    public long raysCast() {
+        return raysCast.get();
+    }
+
+    /**
+     * columns reprojected instead of cast since the start
+     */
+    public long raysSaved() {
+        return raysSaved.get();
+    }
+
+    /**
+     * frames cast completely since the start
+     */
+    public long fullFrames() {
+        return fullFrames;
+    }
+
+    /**
+     * the next frame is cast completely, e.g. before the picture stands still: an idle view keeps the last frame, it
+     * must not hold reprojected columns
+     */
+    public void castNextFrameCompletely() {
+        hasPrevious = false;
+    }
+
+    public RayHitBuffer castColumns(GameState gameState, int columns, RayHitBuffer buf, ParallelBands bands) {
+        return castColumns(gameState.posX(), gameState.posY(),
+                           gameState.dirX(), gameState.dirY(),
+                           gameState.ncpX(), gameState.ncpY(),
+                           gameState.mapWidth(), gameState.mapHeight(), gameState.hitTest(),
+                           columns, buf, bands);
+    }
+
+    /**
+     * same rays and result layout as RayCaster.castColumns
+     */
+    public RayHitBuffer castColumns(double posX, double posY,
+                                    double dirX, double dirY,
+                                    double planeX, double planeY,
+                                    int gridWidth, int gridHeight, RayCaster.IntIntPredicate hit,
+                                    int columns, RayHitBuffer buf, ParallelBands bands) {
+        if(factor == 1 || !canReproject(posX, posY, dirX, dirY, planeX, planeY, columns)) {
+            RayCaster.castColumns(posX, posY, dirX, dirY, planeX, planeY, gridWidth, gridHeight, hit, columns, buf, bands);
+            raysCast.addAndGet(columns);
+            fullFrames++;
+        } else {
+            buf.resize(columns);
+            // the rays of RayCaster.castColumns
+            var ncpFromX = posX + dirX - planeX;
+            var ncpFromY = posY + dirY - planeY;
+            var ncpDirX = 2*planeX;
+            var ncpDirY = 2*planeY;
+            var ncpStrideDist = Math.sqrt(ncpDirX*ncpDirX + ncpDirY*ncpDirY) / (double)columns;
+            var ncpStrideX = ncpDirX*ncpStrideDist;
+            var ncpStrideY = ncpDirY*ncpStrideDist;
+            reproject(posX, posY, dirX, dirY, planeX, planeY, columns, ncpStrideDist);
+            var phase = (int)(frame % factor);
+            bands.run(columns, (from, to) -> {
+                var rayHit = new RayHit();
+                long cast = 0;
+                for(int x=from; x<to; x++) {
+                    if(x % factor == phase || source[x] < 0) {
+                        RayCaster.castColumn(x, posX, posY, planeX, planeY, ncpFromX, ncpFromY, ncpStrideX, ncpStrideY,
+                                             gridWidth, gridHeight, hit, rayHit, buf);
+                        cast++;
+                    } else {
+                        buf.set(x, previous, source[x], depth[x]);
+                    }
+                }
+                raysCast.addAndGet(cast);
+                raysSaved.addAndGet(to - from - cast);
+            });
+        }
+        previous.copyOf(buf);
+        hasPrevious = true;
+        prevPosX = posX; prevPosY = posY;
+        prevDirX = dirX; prevDirY = dirY;
+        prevPlaneX = planeX; prevPlaneY = planeY;
+        frame++;
+        return buf;
+    }
+
+    private boolean canReproject(double posX, double posY, double dirX, double dirY, double planeX, double planeY, int columns) {
+        if(!hasPrevious || previous.columns() != columns) return false;
+        var planeLen2 = planeX*planeX + planeY*planeY;
+        if(Math.abs(planeLen2 - (prevPlaneX*prevPlaneX + prevPlaneY*prevPlaneY)) > 1e-9*planeLen2) return false; // zoom, not the rounding of a turn
+        var cross = prevDirX*dirY - prevDirY*dirX;
+        var dot = prevDirX*dirX + prevDirY*dirY;
+        if(Math.abs(Math.atan2(cross, dot)) > MAX_TURN) return false;
+        var moveX = posX - prevPosX;
+        var moveY = posY - prevPosY;
+        return moveX*moveX + moveY*moveY <= MAX_MOVE*MAX_MOVE;
+    }
+
+    /**
+     * projects the hits of the previous frame into the columns of the camera, fills source and depth
+     */
+    private void reproject(double posX, double posY, double dirX, double dirY, double planeX, double planeY,
+                           int columns, double ncpStrideDist) {
+        if(source.length != columns) {
+            source = new int[columns];
+            depth = new double[columns];
+        }
+        Arrays.fill(source, -1);
+        Arrays.fill(depth, Double.POSITIVE_INFINITY);
+        // ray of column x: dir + plane*(2*ncpStrideDist*x - 1), a point pos + a*dir + b*plane is seen in column (b/a + 1)/(2*ncpStrideDist)
+        var det = dirX*planeY - dirY*planeX;
+        for(int px=0; px<columns; px++) {
+            if(!previous.isHit(px)) continue;
+            var dx = previous.hitX(px) - posX;
+            var dy = previous.hitY(px) - posY;
+            var a = (dx*planeY - dy*planeX)/det;
+            if(a <= 0) continue; // behind the camera
+            var b = (dirX*dy - dirY*dx)/det;
+            var x = (int)Math.round((b/a + 1)/(2*ncpStrideDist));
+            if(x < 0 || x >= columns) continue;
+            var d = RayCaster.perpDistToLine(previous.hitX(px), previous.hitY(px), posX, posY, planeX, planeY);
+            if(d < depth[x]) {
+                depth[x] = d;
+                source[x] = px;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.rsh.game;
+
+/**
+ * mipmap chain of a texture: level 0 is the texture, every further level halves width and height by averaging 2x2
+ * texels, down to 1x1. samplers pick the level by the number of level 0 texels one screen pixel covers: from 2
+ * texels per pixel on level 1 is sampled and so on, so distant walls and floor rows read a small, cached texture
+ * instead of skipping through the big one.
+ *
+ * the texels are row major rgb like Texture.Image.arr() (the alpha byte is kept from the top left texel),
+ * width and height must be powers of two so a level 0 coordinate maps to level l with a shift.
+ */
+public final class MipMap {
+    private final int[][] levels;
+
+    public MipMap(int[] texels, int width, int height) {
+        if(Integer.bitCount(width) != 1 || Integer.bitCount(height) != 1) {
+            throw new IllegalArgumentException(String.format("mipmaps need power of two sizes, got %dx%d", width, height));
+        }
+        var count = 1 + Math.max(Integer.numberOfTrailingZeros(width), Integer.numberOfTrailingZeros(height));
+        levels = new int[count][];
+        levels[0] = texels;
+        for(int l=1; l<count; l++) {
+            var w = Math.max(1, width >> (l - 1));
+            var h = Math.max(1, height >> (l - 1));
+            levels[l] = halve(levels[l - 1], w, h);
+        }
+    }
+
+    /**
+     * level with half the width and height of the w x h texels, the average of 2x2 texels (2x1, 1x2 at the ends of a chain)
+     */
+    private static int[] halve(int[] texels, int w, int h) {
+        var hw = Math.max(1, w/2);
+        var hh = Math.max(1, h/2);
+        var half = new int[hw*hh];
+        for(int y=0; y<hh; y++) {
+            for(int x=0; x<hw; x++) {
+                var x0 = Math.min(2*x, w - 1);
+                var x1 = Math.min(2*x + 1, w - 1);
+                var y0 = Math.min(2*y, h - 1);
+                var y1 = Math.min(2*y + 1, h - 1);
+                int a = texels[y0*w + x0], b = texels[y0*w + x1], c = texels[y1*w + x0], d = texels[y1*w + x1];
+                var r = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF) + ((d >> 16) & 0xFF) + 2) >> 2;
+                var g = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF) + ((d >> 8) & 0xFF) + 2) >> 2;
+                var bl = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+                half[y*hw + x] = (a & 0xFF000000) | (r << 16) | (g << 8) | bl;
+            }
+        }
+        return half;
+    }
+
+    public int levels() {
+        return levels.length;
+    }
+
+    /**
+     * the texels of level, row major, (width >> level) x (height >> level) but at least 1x1
+     */
+    public int[] level(int level) {
+        return levels[level];
+    }
+
+    /**
+     * level to sample when a screen pixel covers texelsPerPixel texels of level 0
+     */
+    public int levelOf(double texelsPerPixel) {
+        return levelOf(texelsPerPixel, levels.length);
+    }
+
+    /**
+     * levelOf of a chain with levels levels: floor(log2(texelsPerPixel)), clamped to the chain
+     */
+    public static int levelOf(double texelsPerPixel, int levels) {
+        if(!(texelsPerPixel >= 2)) return 0;
+        return Math.min(levels - 1, Math.getExponent(texelsPerPixel));
+    }
+}
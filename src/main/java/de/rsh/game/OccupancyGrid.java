@@ -0,0 +1,71 @@
+package de.rsh.game;
+
+/**
+ * one bit per grid cell, set for cells a ray stops at. the hit test of the DDA only needs this bit, the material
+ * is read from the map after the hit. a 4096x4096 map fits into 2MB instead of 64MB of int[][].
+ *
+ * the bits are stored in tiles of 8x8 cells per long (tiles row major, cells row major inside a tile), so a
+ * ray stays in the same word for up to 8 steps in any direction, not only along x as with plain rows.
+ * cells outside of the grid count as occupied.
+ *
+ * the grid has to follow the map: call set(x,y,...) whenever a cell changes.
+ */
+public final class OccupancyGrid implements RayCaster.IntIntPredicate {
+    private static final int TILE_SHIFT = 3; // 8x8 cells per long
+
+    private final int width;
+    private final int height;
+    private final int tilesPerRow;
+    private final long[] bits;
+
+    public OccupancyGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesPerRow = (width + 7) >>> TILE_SHIFT;
+        this.bits = new long[tilesPerRow * ((height + 7) >>> TILE_SHIFT)];
+    }
+
+    /**
+     * @param occupied true for cells a ray stops at
+     */
+    public OccupancyGrid(int width, int height, RayCaster.IntIntPredicate occupied) {
+        this(width, height);
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                if(occupied.test(x, y)) set(x, y, true);
+            }
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void set(int x, int y, boolean occupied) {
+        var word = word(x, y);
+        var mask = 1L << bit(x, y);
+        if(occupied) {
+            bits[word] |= mask;
+        } else {
+            bits[word] &= ~mask;
+        }
+    }
+
+    @Override
+    public boolean test(int x, int y) {
+        if(Integer.compareUnsigned(x, width) >= 0 || Integer.compareUnsigned(y, height) >= 0) return true;
+        return (bits[word(x, y)] & (1L << bit(x, y))) != 0;
+    }
+
+    private int word(int x, int y) {
+        return (y >>> TILE_SHIFT)*tilesPerRow + (x >>> TILE_SHIFT);
+    }
+
+    private static int bit(int x, int y) {
+        return ((y & 7) << TILE_SHIFT) | (x & 7);
+    }
+}
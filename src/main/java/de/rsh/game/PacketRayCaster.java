@@ -0,0 +1,145 @@
+package de.rsh.game;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * lodev's DDA (see RayCaster.drawGameField3D_lodev) for packets of adjacent screen columns, one ray per vector lane.
+ * all lanes step together, lanes which already hit a wall are masked out. when only a few lanes are left
+ * the remaining rays are finished one by one, that is cheaper than stepping a nearly empty packet.
+ * columns which do not fill a whole packet are cast with the scalar DDA.
+ *
+ * the lane math is the same IEEE arithmetic as the scalar version, so both produce the same hits.
+ * needs the incubating vector api at compile and run time: --add-modules jdk.incubator.vector
+ */
+final class PacketRayCaster {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED; // 4 lanes on AVX2, 8 on AVX-512
+    static final int LANES = SPECIES.length();
+    private static final int SCALAR_TAIL = LANES/4; // finish scalar when no more than this many lanes are still stepping
+    private static final double[] IOTA = new double[LANES];
+    static {
+        for(int l=0; l<LANES; l++) { IOTA[l] = l; }
+    }
+
+    private PacketRayCaster() { }
+
+    /**
+     * casts the columns [from,to) of a width columns wide screen into buf
+     */
+    static void castColumns(int from, int to, int width,
+                            double posX, double posY,
+                            double dirX, double dirY,
+                            double planeX, double planeY,
+                            RayCaster.IntIntPredicate hit, RayHitBuffer buf) {
+        var s = new Scratch();
+        var x = from;
+        for(; x + LANES <= to; x += LANES) {
+            castPacket(x, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf, s);
+        }
+        for(; x < to; x++) {
+            RayCaster.castRay_lodev(x, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf);
+        }
+    }
+
+    /**
+     * lane state spilled to arrays, for the hit tests and the scalar tail
+     */
+    private static final class Scratch {
+        final double[] mapX = new double[LANES], mapY = new double[LANES];
+        final double[] sideDistX = new double[LANES], sideDistY = new double[LANES];
+        final double[] deltaDistX = new double[LANES], deltaDistY = new double[LANES];
+        final double[] stepX = new double[LANES], stepY = new double[LANES];
+        final double[] side = new double[LANES];
+        final double[] rayDirX = new double[LANES], rayDirY = new double[LANES];
+    }
+
+    private static void castPacket(int x0, int w,
+                                   double posX, double posY,
+                                   double dirX, double dirY,
+                                   double planeX, double planeY,
+                                   RayCaster.IntIntPredicate hit, RayHitBuffer buf, Scratch s) {
+        var xs = DoubleVector.fromArray(SPECIES, IOTA, 0).add((double)x0);
+        var cameraX = xs.mul(2.0).div((double)w).sub(1.0); //x-coordinate in camera space
+
+        var rayDirX = cameraX.mul(planeX).add(dirX);
+        var rayDirY = cameraX.mul(planeY).add(dirY);
+
+        var mapX = DoubleVector.broadcast(SPECIES, (double)(int)posX);
+        var mapY = DoubleVector.broadcast(SPECIES, (double)(int)posY);
+
+        var one = DoubleVector.broadcast(SPECIES, 1.0);
+        var deltaDistX = one.div(rayDirX).abs().blend(1e30, rayDirX.eq(0.0));
+        var deltaDistY = one.div(rayDirY).abs().blend(1e30, rayDirY.eq(0.0));
+
+        var negX = rayDirX.lt(0.0);
+        var negY = rayDirY.lt(0.0);
+        var stepX = one.blend(-1.0, negX);
+        var stepY = one.blend(-1.0, negY);
+        var sideDistX = mapX.add(1.0).sub(posX).blend(mapX.neg().add(posX), negX).mul(deltaDistX);
+        var sideDistY = mapY.add(1.0).sub(posY).blend(mapY.neg().add(posY), negY).mul(deltaDistY);
+        var side = DoubleVector.zero(SPECIES);
+
+        //perform DDA on all lanes which did not hit yet
+        var active = SPECIES.maskAll(true);
+        while(active.trueCount() > SCALAR_TAIL) {
+            var stepInX = sideDistX.compare(VectorOperators.LT, sideDistY).and(active);
+            var stepInY = active.andNot(stepInX);
+            sideDistX = sideDistX.add(deltaDistX, stepInX);
+            mapX = mapX.add(stepX, stepInX);
+            sideDistY = sideDistY.add(deltaDistY, stepInY);
+            mapY = mapY.add(stepY, stepInY);
+            side = side.blend(0.0, stepInX).blend(1.0, stepInY);
+
+            mapX.intoArray(s.mapX, 0);
+            mapY.intoArray(s.mapY, 0);
+            long hits = 0;
+            for(int l=0; l<LANES; l++) {
+                if(active.laneIsSet(l) && hit.test((int)s.mapX[l], (int)s.mapY[l])) {
+                    hits |= 1L << l;
+                }
+            }
+            if(hits != 0) {
+                active = active.andNot(VectorMask.fromLong(SPECIES, hits));
+            }
+        }
+
+        mapX.intoArray(s.mapX, 0);
+        mapY.intoArray(s.mapY, 0);
+        sideDistX.intoArray(s.sideDistX, 0);
+        sideDistY.intoArray(s.sideDistY, 0);
+        deltaDistX.intoArray(s.deltaDistX, 0);
+        deltaDistY.intoArray(s.deltaDistY, 0);
+        stepX.intoArray(s.stepX, 0);
+        stepY.intoArray(s.stepY, 0);
+        side.intoArray(s.side, 0);
+        rayDirX.intoArray(s.rayDirX, 0);
+        rayDirY.intoArray(s.rayDirY, 0);
+        for(int l=0; l<LANES; l++) {
+            var lMapX = (int)s.mapX[l];
+            var lMapY = (int)s.mapY[l];
+            var lSideDistX = s.sideDistX[l];
+            var lSideDistY = s.sideDistY[l];
+            var lSide = (int)s.side[l];
+            if(active.laneIsSet(l)) {
+                // divergent tail, same DDA as RayCaster.castRay_lodev
+                var hitWall = false;
+                while(!hitWall) {
+                    if(lSideDistX < lSideDistY) {
+                        lSideDistX += s.deltaDistX[l];
+                        lMapX += (int)s.stepX[l];
+                        lSide = 0;
+                    } else {
+                        lSideDistY += s.deltaDistY[l];
+                        lMapY += (int)s.stepY[l];
+                        lSide = 1;
+                    }
+                    hitWall = hit.test(lMapX, lMapY);
+                }
+            }
+            var perpWallDist = lSide == 0 ? lSideDistX - s.deltaDistX[l] : lSideDistY - s.deltaDistY[l];
+            RayCaster.setHit_lodev(buf, x0 + l, posX, posY, s.rayDirX[l], s.rayDirY[l], lSide, lMapX, lMapY, perpWallDist);
+        }
+    }
+}
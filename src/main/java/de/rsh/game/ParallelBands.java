@@ -0,0 +1,66 @@
+package de.rsh.game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * splits an index range [0,n) (screen columns, screen rows, ...) into contiguous bands and runs them on a fork join pool.
+ * a band only gets its index range, so as long as every index writes its own slots (e.g. zBuffer[x]) the result
+ * is identical to the serial loop, no matter how many threads are used or in which order the bands finish.
+ */
+public final class ParallelBands {
+    @FunctionalInterface
+    public interface Band {
+        public void run(int from, int to);
+    }
+
+    private static final int BANDS_PER_THREAD = 4; // more bands than threads, wall columns do not cost the same
+    private static final int MIN_BAND = 16;
+
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param threads number of worker threads, 1 or less runs every band on the calling thread
+     */
+    public ParallelBands(int threads) {
+        this.threads = Math.max(1, threads);
+        this.pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * runs band over [0,n), returns when all bands are done
+     */
+    public void run(int n, Band band) {
+        if(pool == null || n < 2*MIN_BAND) {
+            band.run(0, n);
+            return;
+        }
+        var bandSize = Math.max(MIN_BAND, (n + threads*BANDS_PER_THREAD - 1) / (threads*BANDS_PER_THREAD));
+        pool.invoke(new BandTask(band, 0, n, bandSize));
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class BandTask extends RecursiveAction {
+        private final Band band;
+        private final int from, to, bandSize;
+        BandTask(Band band, int from, int to, int bandSize) {
+            this.band = band;
+            this.from = from;
+            this.to = to;
+            this.bandSize = bandSize;
+        }
+        @Override protected void compute() {
+            if(to - from <= bandSize) {
+                band.run(from, to);
+            } else {
+                var mid = from + (to - from)/2;
+                invokeAll(new BandTask(band, from, mid, bandSize), new BandTask(band, mid, to, bandSize));
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package de.rsh.game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Optional;
+
+/**
+ * potentially visible set of a static grid: for every empty cell the cells which can be seen from somewhere inside it.
+ * sprites, entities or per cell work can skip everything outside the set of the camera cell.
+ *
+ * the sets are sampled: rays in DIRECTIONS(diagonal) directions from 3x3 points inside the cell mark every cell they
+ * pass until the first solid cell (which is marked too). the direction count grows with the map, so neighbouring
+ * rays are less than half a cell apart at the far end of the map. a cell between two sampled rays is next to a cell
+ * one of them marked, so every set is grown by one cell into all 8 neighbours: the sets can hold cells which are not
+ * visible, but a visible cell is not left out.
+ *
+ * the sets are computed for one state of the grid, a changed grid needs new sets.
+ *
+ * storage: one bitset over the whole grid per distinct set, cells share equal sets (all cells of an open room
+ * see the same), solid cells have no set. the sets grow with the square of the cell count, so only grids up to
+ * MAX_CELLS cells are supported.
+ */
+public final class PotentiallyVisibleSet {
+    public static final int MAX_CELLS = 64*64;
+    private static final int MAGIC = 0x52505653; // "RPVS"
+    private static final int VERSION = 2; // 2: the sets are grown by one cell
+    private static final double[] SAMPLES = {0.1, 0.5, 0.9}; // source points inside a cell, per axis
+
+    private final int width;
+    private final int height;
+    private final int[] cellSet; // index into sets per cell, -1 for solid cells
+    private final long[][] sets;
+
+    private PotentiallyVisibleSet(int width, int height, int[] cellSet, long[][] sets) {
+        this.width = width;
+        this.height = height;
+        this.cellSet = cellSet;
+        this.sets = sets;
+    }
+
+    public static boolean isSupported(int width, int height) {
+        return (long)width*height <= MAX_CELLS;
+    }
+
+    /**
+     * computes the sets of all cells, the cells are distributed over bands
+     * @param solid hit test of the grid, true for cells a ray stops at
+     */
+    public static PotentiallyVisibleSet compute(int width, int height, RayCaster.IntIntPredicate solid, ParallelBands bands) {
+        if(!isSupported(width, height)) {
+            throw new IllegalArgumentException("grid " + width + "x" + height + " has more than " + MAX_CELLS + " cells");
+        }
+        var cells = width*height;
+        var words = (cells + 63) >>> 6;
+        var directions = directions(width, height);
+        var perCell = new long[cells][];
+        bands.run(cells, (from, to) -> {
+            for(int c=from; c<to; c++) {
+                var x = c % width;
+                var y = c / width;
+                if(solid.test(x, y)) continue;
+                var bits = new long[words];
+                for(var sy : SAMPLES) {
+                    for(var sx : SAMPLES) {
+                        for(int d=0; d<directions; d++) {
+                            var angle = 2*Math.PI*d/directions;
+                            mark(x + sx, y + sy, Math.cos(angle), Math.sin(angle), width, height, solid, bits);
+                        }
+                    }
+                }
+                perCell[c] = grown(bits, width, height);
+            }
+        });
+
+        // share equal sets
+        var cellSet = new int[cells];
+        var sets = new ArrayList<long[]>();
+        var index = new HashMap<Key, Integer>();
+        for(int c=0; c<cells; c++) {
+            if(perCell[c] == null) {
+                cellSet[c] = -1;
+            } else {
+                var bits = perCell[c];
+                cellSet[c] = index.computeIfAbsent(new Key(bits), k -> { sets.add(bits); return sets.size() - 1; });
+            }
+        }
+        return new PotentiallyVisibleSet(width, height, cellSet, sets.toArray(new long[0][]));
+    }
+
+    /**
+     * like compute, but reads the sets from a cache file in dir if one was written for the same grid before,
+     * otherwise computes them and writes the cache file (a failing write only costs the next start). a file which
+     * is no valid pvs file is computed again. the file is written under a temporary name and moved into place, so
+     * a concurrent start never reads a half written file. dir should belong to the user (see cacheDir()), the
+     * name of the file is predictable
+     */
+    public static PotentiallyVisibleSet cached(Path dir, int width, int height, RayCaster.IntIntPredicate solid, ParallelBands bands) {
+        var file = dir.resolve(String.format("rycst-pvs-%016x.bin", gridHash(width, height, solid)));
+        if(Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            try(var in = Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
+                var pvs = read(in);
+                if(pvs.isPresent() && pvs.get().width == width && pvs.get().height == height) return pvs.get();
+            } catch(IOException | RuntimeException e) {
+                System.err.println("could not read " + file + ": " + e);
+            }
+        }
+        var pvs = compute(width, height, solid, bands);
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, "rycst-pvs-", ".tmp");
+            try(var out = Files.newOutputStream(temp)) {
+                pvs.write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            System.err.println("could not write " + file + ": " + e);
+            if(temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch(IOException ignored) {
+                    // only a stale temporary file left behind
+                }
+            }
+        }
+        return pvs;
+    }
+
+    /**
+     * the cache directory of the current user, user.home/.cache/rycst
+     */
+    public static Path cacheDir() {
+        return Path.of(System.getProperty("user.home"), ".cache", "rycst");
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return number of distinct sets stored
+     */
+    public int distinctSets() {
+        return sets.length;
+    }
+
+    /**
+     * can cell (x,y) be seen from cell (fromX,fromY)? true if the camera is outside the grid or in a solid cell,
+     * there is no set for it then
+     */
+    public boolean visible(int fromX, int fromY, int x, int y) {
+        if(fromX < 0 || fromY < 0 || fromX >= width || fromY >= height) return true;
+        var set = cellSet[fromY*width + fromX];
+        if(set < 0) return true;
+        if(x < 0 || y < 0 || x >= width || y >= height) return false;
+        var c = y*width + x;
+        return (sets[set][c >>> 6] & (1L << c)) != 0;
+    }
+
+    /**
+     * @return number of cells visible from (fromX,fromY)
+     */
+    public int visibleCells(int fromX, int fromY) {
+        var set = cellSet[fromY*width + fromX];
+        if(set < 0) return width*height;
+        var n = 0;
+        for(var word : sets[set]) n += Long.bitCount(word);
+        return n;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        var data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeInt(sets.length);
+        for(var set : sets) {
+            for(var word : set) data.writeLong(word);
+        }
+        for(var set : cellSet) data.writeInt(set);
+        data.flush();
+    }
+
+    /**
+     * @return the sets or empty if in is no pvs file of this version
+     */
+    public static Optional<PotentiallyVisibleSet> read(InputStream in) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if(data.readInt() != MAGIC || data.readInt() != VERSION) return Optional.empty();
+        var width = data.readInt();
+        var height = data.readInt();
+        if(width <= 0 || height <= 0 || !isSupported(width, height)) return Optional.empty();
+        var words = (width*height + 63) >>> 6;
+        var count = data.readInt();
+        if(count < 1 || count > width*height) return Optional.empty(); // corrupt, at most one set per cell
+        var sets = new long[count][words];
+        for(var set : sets) {
+            for(int i=0; i<words; i++) set[i] = data.readLong();
+        }
+        var cellSet = new int[width*height];
+        for(int c=0; c<cellSet.length; c++) {
+            cellSet[c] = data.readInt();
+            if(cellSet[c] < -1 || cellSet[c] >= sets.length) return Optional.empty();
+        }
+        return Optional.of(new PotentiallyVisibleSet(width, height, cellSet, sets));
+    }
+
+    /**
+     * FNV-1a over size, sampling parameters and the solid cells, names the cache file
+     */
+    static long gridHash(int width, int height, RayCaster.IntIntPredicate solid) {
+        var hash = 0xcbf29ce484222325L;
+        hash = (hash ^ VERSION) * 0x100000001b3L;
+        hash = (hash ^ width) * 0x100000001b3L;
+        hash = (hash ^ height) * 0x100000001b3L;
+        hash = (hash ^ directions(width, height)) * 0x100000001b3L;
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                hash = (hash ^ (solid.test(x, y) ? 1 : 0)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * enough directions to keep neighbouring rays less than half a cell apart over the map diagonal
+     */
+    private static int directions(int width, int height) {
+        var diagonal = Math.sqrt((double)width*width + (double)height*height);
+        return Math.max(256, (int)Math.ceil(2*Math.PI*diagonal*2));
+    }
+
+    /**
+     * bits with every cell next to a set cell set too (8 neighbours)
+     */
+    private static long[] grown(long[] bits, int width, int height) {
+        var grown = new long[bits.length];
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                var c = y*width + x;
+                if((bits[c >>> 6] & (1L << c)) == 0) continue;
+                for(int ny=Math.max(0, y-1); ny<=Math.min(height-1, y+1); ny++) {
+                    for(int nx=Math.max(0, x-1); nx<=Math.min(width-1, x+1); nx++) {
+                        var n = ny*width + nx;
+                        grown[n >>> 6] |= 1L << n;
+                    }
+                }
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * lodev's DDA from (posX,posY), marks every cell up to and including the first solid one
+     */
+    private static void mark(double posX, double posY, double rayDirX, double rayDirY,
+                             int width, int height, RayCaster.IntIntPredicate solid, long[] bits) {
+        var mapX = (int)posX;
+        var mapY = (int)posY;
+        var deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1.0 / rayDirX);
+        var deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1.0 / rayDirY);
+        var stepX = rayDirX < 0 ? -1 : 1;
+        var stepY = rayDirY < 0 ? -1 : 1;
+        var sideDistX = (rayDirX < 0 ? posX - mapX : mapX + 1.0 - posX) * deltaDistX;
+        var sideDistY = (rayDirY < 0 ? posY - mapY : mapY + 1.0 - posY) * deltaDistY;
+        while(true) {
+            var c = mapY*width + mapX;
+            bits[c >>> 6] |= 1L << c;
+            if(sideDistX < sideDistY) {
+                sideDistX += deltaDistX;
+                mapX += stepX;
+            } else {
+                sideDistY += deltaDistY;
+                mapY += stepY;
+            }
+            if(mapX < 0 || mapY < 0 || mapX >= width || mapY >= height) return;
+            if(solid.test(mapX, mapY)) {
+                c = mapY*width + mapX;
+                bits[c >>> 6] |= 1L << c;
+                return;
+            }
+        }
+    }
+
+    private record Key(long[] bits) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Arrays.equals(bits, k.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.rsh.game;
+
+/**
+ * dynamic resolution: watches the render time of the last frames and picks the scale of the internal render
+ * resolution (1 = canvas size) so the frames fit into the frame budget. the frames are upscaled to the canvas.
+ *
+ * every WINDOW frames the mean render time is compared with the budget. above HIGH of the budget the scale drops at
+ * once to where the mean would be TARGET of the budget (the cost of a frame grows with the pixels, scale^2), below
+ * LOW it grows by one STEP. the scales are multiples of STEP within [minScale, maxScale], so the framebuffers are
+ * not reallocated for every small change.
+ *
+ * frame is called by the rendering thread, scale can be read from any thread.
+ */
+public final class QualityGovernor {
+    public static final int WINDOW = 16; // frames per decision
+    public static final double STEP = 1.0/16;
+    private static final double HIGH = 0.9;
+    private static final double TARGET = 0.75;
+    private static final double LOW = 0.55;
+
+    private final long budgetNanos;
+    private final double minScale;
+    private final double maxScale;
+    private final long[] frameNanos = new long[WINDOW];
+    private int frames = 0;
+    private volatile double scale;
+
+    /**
+     * starts at maxScale
+     * @param budgetNanos time a frame may take to render
+     */
+    public QualityGovernor(long budgetNanos, double minScale, double maxScale) {
+        if(!(minScale > 0 && minScale <= maxScale)) {
+            throw new IllegalArgumentException(String.format("0 < minScale <= maxScale needed, got %s and %s", minScale, maxScale));
+        }
+        this.budgetNanos = budgetNanos;
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.scale = maxScale;
+    }
+
+    public double scale() {
+        return scale;
+    }
+
+    /**
+     * size in pixels of the internal resolution of a canvas side
+     */
+    public int scaled(int canvasSize) {
+        return Math.max(1, (int)Math.round(canvasSize*scale));
+    }
+
+    /**
+     * records the render time of a frame, may change the scale
+     */
+    public void frame(long nanos) {
+        frameNanos[frames++] = nanos;
+        if(frames < WINDOW) return;
+        frames = 0;
+        long sum = 0;
+        for(var n : frameNanos) sum += n;
+        var mean = (double)sum/WINDOW;
+        var current = scale;
+        if(mean > HIGH*budgetNanos) {
+            scale = clamp(Math.floor(current*Math.sqrt(TARGET*budgetNanos/mean)/STEP)*STEP);
+        } else if(mean < LOW*budgetNanos) {
+            scale = clamp(current + STEP);
+        }
+    }
+
+    private double clamp(double s) {
+        return Math.clamp(s, minScale, maxScale);
+    }
+}
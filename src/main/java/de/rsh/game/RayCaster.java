@@ -2,11 +2,11 @@ package de.rsh.game;
 import java.util.function.*;
 
 import de.rsh.graph.Vec2d;
+import de.rsh.rycst.game.GameState;
 import de.rsh.utils.Pair;
 import de.rsh.utils.Tupl3;
 
 import java.util.Optional;
-import java.util.List;
 
 public class RayCaster {
     // WTH: I only want a function, when will java have real functions?
@@ -19,7 +19,38 @@ public class RayCaster {
         public void apply(int side, int x, int y1, int y2, int mapX, int map);
     }
 
+    /**
+     * receives the hit cell of every column of drawGameField3D_lodev, e.g. for the mini map
+     */
+    @FunctionalInterface
+    public interface TraceSink {
+        public void add(int x, int mapX, int mapY);
+    }
+
+    /**
+     * primitive hit test on grid cells, avoids boxing the cell index on every ray step
+     */
+    @FunctionalInterface
+    public interface IntIntPredicate {
+        public boolean test(int x, int y);
+    }
+
     public static enum Side {Hor, Ver};
+
+    /**
+     * implementations of lodev's DDA for castColumns_lodev
+     * SCALAR: one ray after the other
+     * PACKET: adjacent rays in vector lanes (PacketRayCaster), needs --add-modules jdk.incubator.vector
+     * FIXED_POINT: one ray after the other, stepping in 32.32 fixed point (FixedPointRayCaster)
+     */
+    public static enum Engine {SCALAR, PACKET, FIXED_POINT};
+
+    /**
+     * @return true if the vector api module needed by Engine.PACKET is available in this jvm
+     */
+    public static boolean isPacketEngineAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
     /**
      * find the nearest point in direction dir which snaps to the grid of the worldMap
      * Credits: main idea - jumping from one grid snap poit to the next -  taken from: https://lodev.org/cgtutor/raycasting.html
@@ -115,6 +146,147 @@ public class RayCaster {
         return result;
     }
 
+    /**
+     * primitive version of rayStep(Vec2d, Vec2d), same math but without allocation.
+     * the snap point and the snap side are written to out.hitX, out.hitY and out.side
+     * distances are compared squared, they are only used to pick the nearer snap point
+     */
+    private static void rayStep(double fromX, double fromY, double dirX, double dirY, RayHit out) {
+        final double eps = 1e-3;
+        var vx = fromX;
+        var vy = fromY;
+        if(vx == 0 || vy == 0 || vx/Math.floor(vx) == 1.0 || vy/Math.floor(vy) == 1.0) {
+            // nudge it into right direction, otherwise the ray would stay in place
+            vx = vx + dirX*eps;
+            vy = vy + dirY*eps;
+        }
+        double xSnappedToGrid = dirX > 0 ? Math.ceil(vx) : Math.floor(vx);
+        double ySnappedToGrid = dirY > 0 ? Math.ceil(vy) : Math.floor(vy);
+        double x,y;
+        if(dirX == 0) {
+            y = vy;
+        } else {
+            var m = dirY/dirX;
+            var b = vy - m*vx;
+            y = b + xSnappedToGrid*m;
+        }
+        if(dirY == 0) {
+            x = vx;
+        } else {
+            var m = dirY/dirX;
+            var b = vy - m*vx;
+            x = (ySnappedToGrid - b) / m;
+        }
+        var d1x = xSnappedToGrid - fromX;
+        var d1y = y - fromY;
+        var d2x = x - fromX;
+        var d2y = ySnappedToGrid - fromY;
+        if(d1x*d1x + d1y*d1y <= d2x*d2x + d2y*d2y) {
+            out.hitX = xSnappedToGrid;
+            out.hitY = y;
+            out.side = RayHit.VER;
+        } else {
+            out.hitX = x;
+            out.hitY = ySnappedToGrid;
+            out.side = RayHit.HOR;
+        }
+    }
+
+    /**
+     * allocation free version of rayCastUntilHit(Vec2d, Vec2d, int, int, Predicate), with the same hit semantics.
+     * additionally calculates the perpendicular distance of the hit to the camera plane (ncpX, ncpY) through pos
+     * @param out caller owned storage, receives snap point, side, cell and perpendicular distance, only valid if a hit was found
+     * @return true on hit, false if the ray left the grid
+     */
+    public static boolean rayCastUntilHit(double posX, double posY, double dirX, double dirY,
+                                          double ncpX, double ncpY,
+                                          int gridWidth, int gridHeight, IntIntPredicate hit, RayHit out) {
+        final double EPSILON = 1e-3;
+        rayStep(posX, posY, dirX, dirY, out);
+        while(out.hitX >= 0.0 && out.hitX < gridWidth
+              && out.hitY >= 0.0 && out.hitY < gridHeight) {
+            var overshootX = out.hitX + dirX*EPSILON; // due to epsilon step can overshoot out of space
+            var overshootY = out.hitY + dirY*EPSILON;
+            if(overshootX >= 0 && overshootX < gridWidth && overshootY >= 0 && overshootY < gridHeight) {
+                var cellX = (int)overshootX;
+                var cellY = (int)overshootY;
+                if(hit.test(cellX, cellY)) {
+                    out.cellX = cellX;
+                    out.cellY = cellY;
+                    out.perpDist = perpDistToLine(out.hitX, out.hitY, posX, posY, ncpX, ncpY);
+                    return true;
+                }
+            }
+            rayStep(out.hitX, out.hitY, dirX, dirY, out);
+        }
+        return false;
+    }
+
+    /**
+     * batch version of the primitive rayCastUntilHit, casts one ray per screen column of the camera in gameState
+     * and fills buf. buf is resized to columns (which is a no-op as long as the number of columns stays the same).
+     * the rays are the same as in App.drawGameField3D_rsh, they traverse the camera plane from pos+dir-ncp in
+     * equal strides and are normalized.
+     */
+    public static RayHitBuffer castColumns(GameState gameState, int columns, RayHitBuffer buf, ParallelBands bands) {
+        return castColumns(gameState.posX(), gameState.posY(),
+                           gameState.dirX(), gameState.dirY(),
+                           gameState.ncpX(), gameState.ncpY(),
+                           gameState.mapWidth(), gameState.mapHeight(), gameState.hitTest(),
+                           columns, buf, bands);
+    }
+
+    public static RayHitBuffer castColumns(double posX, double posY,
+                                           double dirX, double dirY,
+                                           double planeX, double planeY,
+                                           int gridWidth, int gridHeight, IntIntPredicate hit,
+                                           int columns, RayHitBuffer buf, ParallelBands bands) {
+        buf.resize(columns);
+        var ncpFromX = posX + dirX - planeX;
+        var ncpFromY = posY + dirY - planeY;
+        var ncpDirX = (posX + dirX + planeX) - ncpFromX;
+        var ncpDirY = (posY + dirY + planeY) - ncpFromY;
+        var ncpStrideDist = Math.sqrt(ncpDirX*ncpDirX + ncpDirY*ncpDirY) / (double)columns;
+        var ncpStrideX = ncpDirX*ncpStrideDist;
+        var ncpStrideY = ncpDirY*ncpStrideDist;
+        // columns are independent, each one only writes its own slot, so the bands may run in any order
+        bands.run(columns, (from, to) -> {
+            var rayHit = new RayHit();
+            for(int x=from; x<to; x++) {
+                castColumn(x, posX, posY, planeX, planeY, ncpFromX, ncpFromY, ncpStrideX, ncpStrideY,
+                           gridWidth, gridHeight, hit, rayHit, buf);
+            }
+        });
+        return buf;
+    }
+
+    /**
+     * casts the ray of column x of castColumns into buf, the ray goes from pos through ncpFrom + x*ncpStride
+     */
+    static void castColumn(int x, double posX, double posY, double planeX, double planeY,
+                           double ncpFromX, double ncpFromY, double ncpStrideX, double ncpStrideY,
+                           int gridWidth, int gridHeight, IntIntPredicate hit, RayHit rayHit, RayHitBuffer buf) {
+        var rayDirX = ncpFromX + x*ncpStrideX - posX;
+        var rayDirY = ncpFromY + x*ncpStrideY - posY;
+        var rayDirInvLen = 1/Math.sqrt(rayDirX*rayDirX + rayDirY*rayDirY);
+        if(rayCastUntilHit(posX, posY, rayDirX*rayDirInvLen, rayDirY*rayDirInvLen,
+                           planeX, planeY, gridWidth, gridHeight, hit, rayHit)) {
+            buf.set(x, rayHit);
+        } else {
+            buf.miss(x);
+        }
+    }
+
+    /**
+     * same as Vec2d.perpDistToLine, distance of (x,y) to the line through (px,py) with direction (dx,dy)
+     */
+    static double perpDistToLine(double x, double y, double px, double py, double dx, double dy) {
+        var nx = -dy;
+        var ny = dx;
+        var dp = nx*(px - x) + ny*(py - y);
+        return Math.abs(dp/Math.sqrt(nx*nx + ny*ny));
+    }
+
     /**
      * drawing raycasting according to https://lodev.org/cgtutor/raycasting.html
      * Copyright (c) 2004-2021, Lode Vandevenne
@@ -126,9 +298,9 @@ public class RayCaster {
           double posX, double posY,
           double dirX, double dirY,
           double planeX, double planeY,
-          BiPredicate<Integer, Integer> hitCallback,
+          IntIntPredicate hitCallback,
           RayDrawingCallback rayDrawingCallback,
-          Optional<List<Pair<Double,Double>>> trace) {
+          Optional<TraceSink> trace) {
         /*
         Copyright (c) 2004-2021, Lode Vandevenne
 
@@ -164,104 +336,268 @@ public class RayCaster {
         var h = height;
 
         for(int x = 0; x < w; x++) {
+            castColumn_lodev(x, w, h, posX, posY, dirX, dirY, planeX, planeY, hitCallback, rayDrawingCallback, trace);
+        }
+    }
 
-            //calculate ray position and direction
-            var cameraX = (2.0 * (double)x / (double)w) - 1.0; //x-coordinate in camera space
-
-            var rayDirX = dirX + planeX * cameraX;
-            var rayDirY = dirY + planeY * cameraX;
-
-            //which box of the map we're in
-            var mapX = (int)posX;
-            var mapY = (int)posY;
-
-            //length of ray from current position to next x or y-side
-            double sideDistX;
-            double sideDistY;
-
-            //length of ray from one x or y-side to next x or y-side
-            //these are derived as:
-            //deltaDistX = sqrt(1 + (rayDirY * rayDirY) / (rayDirX * rayDirX))
-            //deltaDistY = sqrt(1 + (rayDirX * rayDirX) / (rayDirY * rayDirY))
-            //which can be simplified to abs(|rayDir| / rayDirX) and abs(|rayDir| / rayDirY)
-            //where |rayDir| is the length of the vector (rayDirX, rayDirY). Its length,
-            //unlike (dirX, dirY) is not 1, however this does not matter, only the
-            //ratio between deltaDistX and deltaDistY matters, due to the way the DDA
-            //stepping further below works. So the values can be computed as below.
-            // Division through zero is prevented, even though technically that's not
-            // needed in C++ with IEEE 754 floating point values.
-            var deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1.0 / rayDirX);
-            var deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1.0 / rayDirY);
-
-            double perpWallDist;
-
-            //what direction to step in x or y-direction (either +1 or -1)
-            int stepX;
-            int stepY;
-
-            boolean hit = false; //was there a wall hit?
-            int side = 0; //was a  0==North/South or a 1==Eeast/West wall hit?
-            //calculate step and initial sideDist
-            if(rayDirX < 0) {
-                stepX = -1;
-                sideDistX = (posX - mapX) * deltaDistX;
-            } else {
-                stepX = 1;
-                sideDistX = (mapX + 1.0 - posX) * deltaDistX;
-            }
-            if(rayDirY < 0) {
-                stepY = -1;
-                sideDistY = (posY - mapY) * deltaDistY;
-            } else {
-                stepY = 1;
-                sideDistY = (mapY + 1.0 - posY) * deltaDistY;
+    /**
+     * parallel version of drawGameField3D_lodev, the screen columns are cast in bands on the worker threads of bands.
+     * the callbacks are called concurrently for different columns, so they must only touch state of their own column x
+     * (e.g. zBuffer[x] or the pixels of column x). under this condition the result is the same as the serial version.
+     */
+    public static void drawGameField3D_lodev(
+          int width, int height,
+          double posX, double posY,
+          double dirX, double dirY,
+          double planeX, double planeY,
+          IntIntPredicate hitCallback,
+          RayDrawingCallback rayDrawingCallback,
+          ParallelBands bands) {
+        Optional<TraceSink> noTrace = Optional.empty(); // a shared trace sink would have to be thread safe
+        bands.run(width, (from, to) -> {
+            for(int x = from; x < to; x++) {
+                castColumn_lodev(x, width, height, posX, posY, dirX, dirY, planeX, planeY, hitCallback, rayDrawingCallback, noTrace);
             }
+        });
+    }
 
-            //perform DDA
-            while(!hit) {
-                //jump to next map square, either in x-direction, or in y-direction
-                if(sideDistX < sideDistY) {
-                    sideDistX += deltaDistX;
-                    mapX += stepX;
-                    side = 0;
-                } else {
-                    sideDistY += deltaDistY;
-                    mapY += stepY;
-                    side = 1;
-                }
-                //Check if ray has hit a wall
-                //hit = (map[mapX][mapY] != WorldMap.SPACE);
-                //hit = (map[mapY][mapX] != WorldMap.SPACE);
-                hit = hitCallback.test(mapX,mapY);
+    /**
+     * one screen column of drawGameField3D_lodev (see the copyright notice there)
+     */
+    private static void castColumn_lodev(
+          int x, int w, int h,
+          double posX, double posY,
+          double dirX, double dirY,
+          double planeX, double planeY,
+          IntIntPredicate hitCallback,
+          RayDrawingCallback rayDrawingCallback,
+          Optional<TraceSink> trace) {
+        //calculate ray position and direction
+        var cameraX = (2.0 * (double)x / (double)w) - 1.0; //x-coordinate in camera space
+
+        var rayDirX = dirX + planeX * cameraX;
+        var rayDirY = dirY + planeY * cameraX;
+
+        //which box of the map we're in
+        var mapX = (int)posX;
+        var mapY = (int)posY;
+
+        //length of ray from current position to next x or y-side
+        double sideDistX;
+        double sideDistY;
+
+        //length of ray from one x or y-side to next x or y-side
+        //these are derived as:
+        //deltaDistX = sqrt(1 + (rayDirY * rayDirY) / (rayDirX * rayDirX))
+        //deltaDistY = sqrt(1 + (rayDirX * rayDirX) / (rayDirY * rayDirY))
+        //which can be simplified to abs(|rayDir| / rayDirX) and abs(|rayDir| / rayDirY)
+        //where |rayDir| is the length of the vector (rayDirX, rayDirY). Its length,
+        //unlike (dirX, dirY) is not 1, however this does not matter, only the
+        //ratio between deltaDistX and deltaDistY matters, due to the way the DDA
+        //stepping further below works. So the values can be computed as below.
+        // Division through zero is prevented, even though technically that's not
+        // needed in C++ with IEEE 754 floating point values.
+        var deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1.0 / rayDirX);
+        var deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1.0 / rayDirY);
+
+        double perpWallDist;
+
+        //what direction to step in x or y-direction (either +1 or -1)
+        int stepX;
+        int stepY;
+
+        boolean hit = false; //was there a wall hit?
+        int side = 0; //was a  0==North/South or a 1==Eeast/West wall hit?
+        //calculate step and initial sideDist
+        if(rayDirX < 0) {
+            stepX = -1;
+            sideDistX = (posX - mapX) * deltaDistX;
+        } else {
+            stepX = 1;
+            sideDistX = (mapX + 1.0 - posX) * deltaDistX;
+        }
+        if(rayDirY < 0) {
+            stepY = -1;
+            sideDistY = (posY - mapY) * deltaDistY;
+        } else {
+            stepY = 1;
+            sideDistY = (mapY + 1.0 - posY) * deltaDistY;
+        }
+
+        //perform DDA
+        while(!hit) {
+            //jump to next map square, either in x-direction, or in y-direction
+            if(sideDistX < sideDistY) {
+                sideDistX += deltaDistX;
+                mapX += stepX;
+                side = 0;
+            } else {
+                sideDistY += deltaDistY;
+                mapY += stepY;
+                side = 1;
             }
+            //Check if ray has hit a wall
+            //hit = (map[mapX][mapY] != WorldMap.SPACE);
+            //hit = (map[mapY][mapX] != WorldMap.SPACE);
+            hit = hitCallback.test(mapX,mapY);
+        }
 
-            //Calculate distance projected on camera direction. This is the shortest distance from the point where the wall is
-            //hit to the camera plane. Euclidean to center camera point would give fisheye effect!
-            //This can be computed as (mapX - posX + (1 - stepX) / 2) / rayDirX for side == 0, or same formula with Y
-            //for size == 1, but can be simplified to the code below thanks to how sideDist and deltaDist are computed:
-            //because they were left scaled to |rayDir|. sideDist is the entire length of the ray above after the multiple
-            //steps, but we subtract deltaDist once because one step more into the wall was taken above.
+        //Calculate distance projected on camera direction. This is the shortest distance from the point where the wall is
+        //hit to the camera plane. Euclidean to center camera point would give fisheye effect!
+        //This can be computed as (mapX - posX + (1 - stepX) / 2) / rayDirX for side == 0, or same formula with Y
+        //for size == 1, but can be simplified to the code below thanks to how sideDist and deltaDist are computed:
+        //because they were left scaled to |rayDir|. sideDist is the entire length of the ray above after the multiple
+        //steps, but we subtract deltaDist once because one step more into the wall was taken above.
         if(side == 0) perpWallDist = (sideDistX - deltaDistX);
         else          perpWallDist = (sideDistY - deltaDistY);
-            if(trace.isPresent()) {
-                if(side == 0)
-                    trace.get().add(new Pair<Double,Double>((double)(mapX), (double)(mapY)));
-                else
-                    trace.get().add(new Pair<Double,Double>((double)(mapX), (double)(mapY)));
+        if(trace.isPresent()) {
+            trace.get().add(x, mapX, mapY);
+        }
+
+        //Calculate height of line to draw on screen
+        int lineHeight = (int)(h / perpWallDist);
+
+        //calculate lowest and highest pixel to fill in current stripe
+        int drawStart = -lineHeight / 2 + h / 2;
+        if(drawStart < 0) drawStart = 0;
+        int drawEnd = lineHeight / 2 + h / 2;
+        if(drawEnd >= h) drawEnd = h - 1;
+
+        rayDrawingCallback.apply(side, x,drawStart, drawEnd, mapX, mapY);
+    }
+
+    /**
+     * lodev's DDA for all columns of the screen, writes the hits to buf instead of drawing them
+     * @param engine which implementation does the stepping, SCALAR and PACKET give the same hits,
+     *               FIXED_POINT can differ in perpDist by rounding
+     */
+    public static RayHitBuffer castColumns_lodev(Engine engine, int width,
+                                                 double posX, double posY,
+                                                 double dirX, double dirY,
+                                                 double planeX, double planeY,
+                                                 IntIntPredicate hit, RayHitBuffer buf, ParallelBands bands) {
+        buf.resize(width);
+        bands.run(width, (from, to) -> {
+            switch (engine) {
+                case PACKET:
+                    PacketRayCaster.castColumns(from, to, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf);
+                    break;
+                case FIXED_POINT:
+                    FixedPointRayCaster.castColumns(from, to, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf);
+                    break;
+                case SCALAR:
+                default:
+                    for(int x = from; x < to; x++) {
+                        castRay_lodev(x, width, posX, posY, dirX, dirY, planeX, planeY, hit, buf);
+                    }
+                    break;
             }
+        });
+        return buf;
+    }
 
-            //Calculate height of line to draw on screen
-            int lineHeight = (int)(h / perpWallDist);
+    /**
+     * castColumns_lodev with empty space skipping, the rays jump over the empty squares of field
+     * (see DistanceField.castRay_lodev), the field is also the hit test
+     */
+    public static RayHitBuffer castColumns_lodev(DistanceField field, int width,
+                                                 double posX, double posY,
+                                                 double dirX, double dirY,
+                                                 double planeX, double planeY,
+                                                 RayHitBuffer buf, ParallelBands bands) {
+        buf.resize(width);
+        bands.run(width, (from, to) -> {
+            for(int x = from; x < to; x++) {
+                field.castRay_lodev(x, width, posX, posY, dirX, dirY, planeX, planeY, buf);
+            }
+        });
+        return buf;
+    }
 
-            //calculate lowest and highest pixel to fill in current stripe
+    /**
+     * drawGameField3D_lodev on top of castColumns_lodev, the callbacks are called in column order on the calling thread
+     */
+    public static void drawGameField3D_lodev(
+          Engine engine, RayHitBuffer buf,
+          int width, int height,
+          double posX, double posY,
+          double dirX, double dirY,
+          double planeX, double planeY,
+          IntIntPredicate hitCallback,
+          RayDrawingCallback rayDrawingCallback,
+          ParallelBands bands) {
+        castColumns_lodev(engine, width, posX, posY, dirX, dirY, planeX, planeY, hitCallback, buf, bands);
+        var h = height;
+        for(int x = 0; x < width; x++) {
+            int lineHeight = (int)(h / buf.perpDist(x));
             int drawStart = -lineHeight / 2 + h / 2;
             if(drawStart < 0) drawStart = 0;
             int drawEnd = lineHeight / 2 + h / 2;
             if(drawEnd >= h) drawEnd = h - 1;
+            rayDrawingCallback.apply(buf.side(x) == RayHit.VER ? 0 : 1, x, drawStart, drawEnd, buf.cellX(x), buf.cellY(x));
+        }
+    }
 
-            rayDrawingCallback.apply(side, x,drawStart, drawEnd, mapX, mapY);
-
+    /**
+     * one ray of lodev's DDA (same math as castColumn_lodev), the hit goes to column x of buf
+     * @return number of DDA steps
+     */
+    public static int castRay_lodev(int x, int w,
+                                    double posX, double posY,
+                                    double dirX, double dirY,
+                                    double planeX, double planeY,
+                                    IntIntPredicate hit, RayHitBuffer buf) {
+        var cameraX = (2.0 * (double)x / (double)w) - 1.0;
+        var rayDirX = dirX + planeX * cameraX;
+        var rayDirY = dirY + planeY * cameraX;
+        var mapX = (int)posX;
+        var mapY = (int)posY;
+        var deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1.0 / rayDirX);
+        var deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1.0 / rayDirY);
+        int stepX, stepY;
+        double sideDistX, sideDistY;
+        if(rayDirX < 0) {
+            stepX = -1;
+            sideDistX = (posX - mapX) * deltaDistX;
+        } else {
+            stepX = 1;
+            sideDistX = (mapX + 1.0 - posX) * deltaDistX;
+        }
+        if(rayDirY < 0) {
+            stepY = -1;
+            sideDistY = (posY - mapY) * deltaDistY;
+        } else {
+            stepY = 1;
+            sideDistY = (mapY + 1.0 - posY) * deltaDistY;
         }
+        var side = 0;
+        var steps = 0;
+        var hitWall = false;
+        while(!hitWall) {
+            steps++;
+            if(sideDistX < sideDistY) {
+                sideDistX += deltaDistX;
+                mapX += stepX;
+                side = 0;
+            } else {
+                sideDistY += deltaDistY;
+                mapY += stepY;
+                side = 1;
+            }
+            hitWall = hit.test(mapX, mapY);
+        }
+        var perpWallDist = side == 0 ? sideDistX - deltaDistX : sideDistY - deltaDistY;
+        setHit_lodev(buf, x, posX, posY, rayDirX, rayDirY, side, mapX, mapY, perpWallDist);
+        return steps;
     }
-}
 
+    /**
+     * stores a hit of lodev's DDA, lodev's side 0 (a x-side was crossed) is RayHit.VER.
+     * the hit point is pos + perpWallDist*rayDir, because rayDir ends on the camera plane
+     */
+    static void setHit_lodev(RayHitBuffer buf, int x, double posX, double posY, double rayDirX, double rayDirY,
+                             int side, int mapX, int mapY, double perpWallDist) {
+        buf.set(x, posX + perpWallDist*rayDirX, posY + perpWallDist*rayDirY,
+                side == 0 ? RayHit.VER : RayHit.HOR, mapX, mapY, perpWallDist);
+    }
+}
@@ -0,0 +1,17 @@
+package de.rsh.game;
+
+/**
+ * caller owned result of the primitive ray cast (see {@link RayCaster#rayCastUntilHit(double, double, double, double, double, double, int, int, RayCaster.IntIntPredicate, RayHit)})
+ * the caster only writes primitive fields, so one instance can be reused for every column of every frame
+ * without producing garbage.
+ */
+public final class RayHit {
+    // same values as RayCaster.Side.Hor.ordinal() and RayCaster.Side.Ver.ordinal()
+    public static final int HOR = 0;
+    public static final int VER = 1;
+
+    public double hitX, hitY;   // snap point on the hit cell (grid coordinate system)
+    public int side;            // HOR or VER
+    public int cellX, cellY;    // index of the hit grid cell
+    public double perpDist;     // perpendicular distance of the snap point to the camera plane
+}
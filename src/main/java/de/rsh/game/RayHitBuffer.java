@@ -0,0 +1,107 @@
+package de.rsh.game;
+
+/**
+ * ray cast results of a whole frame, one entry per screen column, stored as struct of arrays.
+ * filled by RayCaster.castColumns, read sequentially by the wall, sprite and minimap passes.
+ * the arrays are reused from frame to frame, they are only reallocated when the number of columns changes.
+ */
+public final class RayHitBuffer {
+    public static final int MISS = -1; // side of a column whose ray left the grid without hit
+
+    private int columns;
+    private double[] perpDist;
+    private double[] hitX;
+    private double[] hitY;
+    private int[] side;
+    private int[] cellX;
+    private int[] cellY;
+    private double[] texU;
+
+    public RayHitBuffer(int columns) {
+        allocate(columns);
+    }
+
+    private void allocate(int columns) {
+        this.columns = columns;
+        this.perpDist = new double[columns];
+        this.hitX = new double[columns];
+        this.hitY = new double[columns];
+        this.side = new int[columns];
+        this.cellX = new int[columns];
+        this.cellY = new int[columns];
+        this.texU = new double[columns];
+    }
+
+    /**
+     * makes room for columns entries, keeps the arrays if the number of columns did not change
+     */
+    public RayHitBuffer resize(int columns) {
+        if(columns != this.columns) {
+            allocate(columns);
+        }
+        return this;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * stores a hit in column x
+     * @param side RayHit.HOR or RayHit.VER
+     */
+    public void set(int x, double hitX, double hitY, int side, int cellX, int cellY, double perpDist) {
+        this.hitX[x] = hitX;
+        this.hitY[x] = hitY;
+        this.side[x] = side;
+        this.cellX[x] = cellX;
+        this.cellY[x] = cellY;
+        this.perpDist[x] = perpDist;
+        // "1 -" to avoid mirror effect with textures
+        this.texU[x] = Math.abs(side == RayHit.HOR ? hitX - cellX : 1 - (hitY - cellY));
+    }
+    public void set(int x, RayHit hit) {
+        set(x, hit.hitX, hit.hitY, hit.side, hit.cellX, hit.cellY, hit.perpDist);
+    }
+    public void miss(int x) {
+        this.side[x] = MISS;
+    }
+    /**
+     * stores the hit of column fromX of other in column x, seen at another distance
+     */
+    public void set(int x, RayHitBuffer other, int fromX, double perpDist) {
+        this.hitX[x] = other.hitX[fromX];
+        this.hitY[x] = other.hitY[fromX];
+        this.side[x] = other.side[fromX];
+        this.cellX[x] = other.cellX[fromX];
+        this.cellY[x] = other.cellY[fromX];
+        this.texU[x] = other.texU[fromX];
+        this.perpDist[x] = perpDist;
+    }
+    /**
+     * makes this a copy of other
+     */
+    public RayHitBuffer copyOf(RayHitBuffer other) {
+        resize(other.columns);
+        System.arraycopy(other.perpDist, 0, perpDist, 0, columns);
+        System.arraycopy(other.hitX, 0, hitX, 0, columns);
+        System.arraycopy(other.hitY, 0, hitY, 0, columns);
+        System.arraycopy(other.side, 0, side, 0, columns);
+        System.arraycopy(other.cellX, 0, cellX, 0, columns);
+        System.arraycopy(other.cellY, 0, cellY, 0, columns);
+        System.arraycopy(other.texU, 0, texU, 0, columns);
+        return this;
+    }
+
+    public boolean isHit(int x) { return side[x] != MISS; }
+    public double perpDist(int x) { return perpDist[x]; }
+    public double hitX(int x) { return hitX[x]; }
+    public double hitY(int x) { return hitY[x]; }
+    public int side(int x) { return side[x]; }
+    public int cellX(int x) { return cellX[x]; }
+    public int cellY(int x) { return cellY[x]; }
+    /**
+     * horizontal texture coordinate of the hit within the wall, 0..1
+     */
+    public double texU(int x) { return texU[x]; }
+}
@@ -0,0 +1,66 @@
+package de.rsh.game;
+
+/**
+ * light levels of a texture, like the colormaps of doom: one copy of the texels per level, with every channel
+ * scaled by level/(levels-1). the renderers pick the level once per row or column and then shade with a single
+ * lookup per pixel, no colour space round trip.
+ *
+ * level levels-1 is the texture as is, level 0 is black. a table with one level leaves the texture unshaded.
+ * the shaded texels are opaque ARGB.
+ */
+public final class ShadeTable {
+    private final int levels;
+    private final int[][] shaded;
+
+    /**
+     * @param texels rgb texels, the layout of the texture is kept
+     */
+    public ShadeTable(int[] texels, int levels) {
+        if(levels < 1) throw new IllegalArgumentException("at least one light level needed, got " + levels);
+        this.levels = levels;
+        this.shaded = new int[levels][];
+        for(int level=0; level<levels; level++) {
+            var table = new int[texels.length];
+            var factor = levels == 1 ? 65536 : (int)((double)level/(levels - 1)*65536);
+            for(int i=0; i<texels.length; i++) {
+                table[i] = shade(texels[i], factor);
+            }
+            shaded[level] = table;
+        }
+    }
+
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * the texels of light level, index them like the texture
+     */
+    public int[] level(int level) {
+        return shaded[level];
+    }
+
+    /**
+     * nearest light level of brightness 0..1 (clamped)
+     */
+    public int levelOf(double brightness) {
+        return Math.clamp((long)(brightness*(levels - 1) + 0.5), 0, levels - 1);
+    }
+
+    /**
+     * the texels of the light level nearest to brightness
+     */
+    public int[] shaded(double brightness) {
+        return shaded[levelOf(brightness)];
+    }
+
+    /**
+     * scales the channels of rgb by factor/65536 with rounding, opaque result
+     */
+    public static int shade(int rgb, int factor) {
+        var r = (((rgb >> 16) & 0xFF)*factor + 0x8000) >> 16;
+        var g = (((rgb >> 8) & 0xFF)*factor + 0x8000) >> 16;
+        var b = ((rgb & 0xFF)*factor + 0x8000) >> 16;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
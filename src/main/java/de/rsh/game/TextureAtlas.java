@@ -0,0 +1,231 @@
+package de.rsh.game;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * the texels of all textures, each one column major: texel (u, v) of texture id is texels(id).get(u*height(id) + v).
+ * a wall stripe is one texture column, so it reads consecutive texels.
+ *
+ * generated textures are stored once, one after the other in one array on the heap, texels(id) is a view of their
+ * part. they are generated for the atlas and not kept in the TextureCache too. the texels of pack textures are the
+ * mapped blocks of the AssetPack, no copy. textures are addressed by their id, the index in the list the atlas was
+ * built from. the atlas of(width, height) holds every Texture at that size with the ids of Texture.id(),
+ * of(width, height, pack) adds the other textures of an AssetPack after them.
+ */
+public final class TextureAtlas {
+    private final IntBuffer[] textures; // read only, position 0
+    private final int[] widths;
+    private final int[] heights;
+    private final IndexedTexture[][] indexed; // stored indexed levels of pack textures, null for the others
+
+    /**
+     * every Texture at width x height, texture t has the id t.id()
+     */
+    public static TextureAtlas of(int width, int height) {
+        var builtIn = Texture.values();
+        var rows = new int[builtIn.length][];
+        for(int id=0; id<rows.length; id++) {
+            rows[id] = TextureInternal.generate(builtIn[id], width, height);
+        }
+        var widths = new int[rows.length];
+        var heights = new int[rows.length];
+        Arrays.fill(widths, width);
+        Arrays.fill(heights, height);
+        return new TextureAtlas(columnMajor(rows, widths, heights), widths, heights, new IndexedTexture[rows.length][]);
+    }
+
+    /**
+     * every Texture at width x height like of(width, height) with the ids of Texture.id(), textures with a texture of
+     * the same name in pack are taken from the pack. the other textures of the pack follow with the ids
+     * Texture.values().length, ... in the order of the pack (see names(pack)). the texels of pack textures are the
+     * mapped blocks of the pack, they stay valid when the pack is closed. so are their indexed levels (indexed(id))
+     * @throws IllegalArgumentException if a texture of the pack has another size
+     */
+    public static TextureAtlas of(int width, int height, AssetPack pack) {
+        var names = names(pack);
+        var textures = new IntBuffer[names.size()];
+        var indexed = new IndexedTexture[names.size()][];
+        var builtIn = Texture.values();
+        var rows = new int[names.size()][]; // the generated textures, row major
+        var widths = new int[textures.length];
+        var heights = new int[textures.length];
+        Arrays.fill(widths, width);
+        Arrays.fill(heights, height);
+        for(int id=0; id<textures.length; id++) {
+            var packed = pack.id(names.get(id));
+            if(packed.isPresent()) {
+                var pid = packed.get();
+                if(pack.width(pid) != width || pack.height(pid) != height) {
+                    throw new IllegalArgumentException(String.format("%s of the asset pack is %dx%d, the textures are %dx%d",
+                                                                     names.get(id), pack.width(pid), pack.height(pid), width, height));
+                }
+                textures[id] = pack.texels(pid);
+                indexed[id] = pack.indexed(pid);
+            } else {
+                rows[id] = TextureInternal.generate(builtIn[id], width, height);
+            }
+        }
+        var generated = columnMajor(rows, widths, heights);
+        for(int id=0; id<textures.length; id++) {
+            if(textures[id] == null) textures[id] = generated[id];
+        }
+        return new TextureAtlas(textures, widths, heights, indexed);
+    }
+
+    /**
+     * names of the textures of of(width, height, pack) by id: the Texture names, then the names of the other textures
+     * of pack, sorted like the pack
+     */
+    public static List<String> names(AssetPack pack) {
+        var builtIn = Arrays.stream(Texture.values()).map(Texture::name).collect(Collectors.toList());
+        var known = Set.copyOf(builtIn);
+        var names = new ArrayList<>(builtIn);
+        pack.names().stream().filter(n -> !known.contains(n)).forEach(names::add);
+        return names;
+    }
+
+    /**
+     * copies the row major texels of the images into the atlas, the image at index i gets the id i
+     */
+    public TextureAtlas(List<Texture.Image> images) {
+        this(images.stream().map(Texture.Image::arr).toArray(int[][]::new),
+             images.stream().mapToInt(Texture.Image::width).toArray(),
+             images.stream().mapToInt(Texture.Image::height).toArray());
+    }
+
+    private TextureAtlas(int[][] rows, int[] widths, int[] heights) {
+        this(columnMajor(rows, widths, heights), widths, heights, new IndexedTexture[rows.length][]);
+    }
+
+    private TextureAtlas(IntBuffer[] textures, int[] widths, int[] heights, IndexedTexture[][] indexed) {
+        this.textures = new IntBuffer[textures.length];
+        this.widths = widths;
+        this.heights = heights;
+        for(int id=0; id<textures.length; id++) {
+            this.textures[id] = textures[id].asReadOnlyBuffer();
+        }
+        this.indexed = indexed;
+    }
+
+    /**
+     * transposes the row major texels of the textures into one array, the texture id is a view of its part. null
+     * rows (textures from a pack) get no part and a null view
+     */
+    private static IntBuffer[] columnMajor(int[][] rows, int[] widths, int[] heights) {
+        var size = 0;
+        for(int id=0; id<rows.length; id++) {
+            if(rows[id] != null) size += widths[id]*heights[id];
+        }
+        var store = new int[size];
+        var textures = new IntBuffer[rows.length];
+        var offset = 0;
+        for(int id=0; id<rows.length; id++) {
+            if(rows[id] == null) continue;
+            for(int u=0; u<widths[id]; u++) {
+                for(int v=0; v<heights[id]; v++) {
+                    store[offset + u*heights[id] + v] = rows[id][v*widths[id] + u];
+                }
+            }
+            textures[id] = IntBuffer.wrap(store, offset, widths[id]*heights[id]).slice();
+            offset += widths[id]*heights[id];
+        }
+        return textures;
+    }
+
+    /**
+     * number of textures, the ids are 0 ... count()-1
+     */
+    public int count() {
+        return textures.length;
+    }
+
+    /**
+     * the texels of texture id, column major, read only and not a copy (a view of the array of the generated textures
+     * or of the mapping of a pack)
+     */
+    public IntBuffer texels(int id) {
+        return textures[id].duplicate();
+    }
+
+    public int width(int id) {
+        return widths[id];
+    }
+
+    /**
+     * texels per column of texture id, the distance of two columns in texels(id)
+     */
+    public int height(int id) {
+        return heights[id];
+    }
+
+    public int pix(int id, int u, int v) {
+        return textures[id].get(u*heights[id] + v);
+    }
+
+    /**
+     * the texels of texture id row major, e.g. for BufferedImage.setRGB
+     */
+    public int[] rowMajor(int id) {
+        var rows = new int[widths[id]*heights[id]];
+        for(int v=0; v<heights[id]; v++) {
+            for(int u=0; u<widths[id]; u++) {
+                rows[v*widths[id] + u] = pix(id, u, v);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * the indexed levels an AssetPack stores for texture id (AssetPack.indexed), level l is mip level l. empty for
+     * generated textures, they are indexed by the renderer
+     */
+    public Optional<IndexedTexture[]> indexed(int id) {
+        return Optional.ofNullable(indexed[id]);
+    }
+
+    /**
+     * the mipmap chain of texture id, a copy of the texels on the heap. the levels are column major like the atlas,
+     * level l is max(1, width(id) >> l) x max(1, height(id) >> l). the size of the texture must be a power of two
+     */
+    public MipMap mipMap(int id) {
+        var texels = new int[widths[id]*heights[id]];
+        textures[id].get(0, texels);
+        // column major w x h is row major with h texels per row and w rows
+        return new MipMap(texels, heights[id], widths[id]);
+    }
+
+    /**
+     * the mipmaps of the atlas: element l is an atlas with the same ids holding mip level l of every texture, element 0
+     * is this atlas. a texture with a shorter chain than the others repeats its 1x1 level. the sizes of the textures
+     * must be powers of two
+     */
+    public TextureAtlas[] mipLevels() {
+        var chains = new MipMap[count()];
+        var levels = 1;
+        for(int id=0; id<count(); id++) {
+            chains[id] = mipMap(id);
+            levels = Math.max(levels, chains[id].levels());
+        }
+        var atlases = new TextureAtlas[levels];
+        atlases[0] = this;
+        for(int level=1; level<levels; level++) {
+            var textures = new IntBuffer[count()];
+            var widths = new int[count()];
+            var heights = new int[count()];
+            for(int id=0; id<count(); id++) {
+                var l = Math.min(level, chains[id].levels() - 1);
+                textures[id] = IntBuffer.wrap(chains[id].level(l));
+                widths[id] = Math.max(1, this.widths[id] >> l);
+                heights[id] = Math.max(1, this.heights[id] >> l);
+            }
+            atlases[level] = new TextureAtlas(textures, widths, heights, new IndexedTexture[count()][]);
+        }
+        return atlases;
+    }
+}
@@ -0,0 +1,134 @@
+package de.rsh.game;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * the generated textures per (texture, width, height). a texture is generated on its first request, only that one
+ * texture at that size. reads of cached textures take no lock: a ConcurrentHashMap lookup and a stamp of the use.
+ *
+ * the texels are bounded by maxBytes: a miss that pushes the cache over the bound evicts the least recently used
+ * textures until it fits again (never the texture just requested, a single texture bigger than the bound stays until
+ * the next miss). evicting only drops the cache entry, images handed out before stay valid and are generated again
+ * on the next request. misses of different keys generate concurrently, eviction is serialized.
+ */
+public final class TextureCache {
+    private record Key(Texture texture, int width, int height) {}
+
+    private static final class Entry {
+        private final Texture.Image image;
+        private volatile long lastUse;
+
+        private Entry(Texture.Image image, long lastUse) {
+            this.image = image;
+            this.lastUse = lastUse;
+        }
+
+        private long bytes() {
+            return 4L*image.arr().length;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong(); // use stamps, the order of the requests
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long maxBytes;
+
+    public TextureCache(long maxBytes) {
+        if(maxBytes < 0) throw new IllegalArgumentException("the cache bound can't be negative, got " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * the texture at width x height, from the cache or generated
+     */
+    public Texture.Image get(Texture texture, int width, int height) {
+        requests.increment();
+        var key = new Key(texture, width, height);
+        var entry = entries.get(key);
+        if(entry == null) {
+            entry = entries.computeIfAbsent(key, k -> {
+                misses.increment();
+                var generated = new Entry(new Texture.Image(width, height, TextureInternal.generate(texture, width, height)),
+                                          clock.incrementAndGet());
+                bytes.addAndGet(generated.bytes());
+                return generated;
+            });
+            if(bytes.get() > maxBytes) evict(key);
+        }
+        entry.lastUse = clock.incrementAndGet();
+        return entry.image;
+    }
+
+    /**
+     * drops least recently used entries, but not keep, until the texels fit into maxBytes
+     */
+    private synchronized void evict(Key keep) {
+        if(bytes.get() <= maxBytes) return;
+        var byAge = entries.entrySet().stream()
+                           .filter(e -> !e.getKey().equals(keep))
+                           .sorted(Comparator.comparingLong(e -> e.getValue().lastUse))
+                           .toList();
+        for(Map.Entry<Key, Entry> e : byAge) {
+            if(bytes.get() <= maxBytes) break;
+            if(entries.remove(e.getKey(), e.getValue())) {
+                bytes.addAndGet(-e.getValue().bytes());
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * changes the bound, evicts at once when the cache holds more
+     */
+    public void setMaxBytes(long maxBytes) {
+        if(maxBytes < 0) throw new IllegalArgumentException("the cache bound can't be negative, got " + maxBytes);
+        this.maxBytes = maxBytes;
+        evict(null);
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * bytes of the cached texels
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * number of cached textures
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * requests answered from the cache
+     */
+    public long hits() {
+        return requests.sum() - misses.sum();
+    }
+
+    /**
+     * requests that generated the texture
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * textures dropped to stay within the bound
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+}
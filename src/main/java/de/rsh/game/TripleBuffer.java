@@ -0,0 +1,64 @@
+package de.rsh.game;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * hands frames from one producer thread (renders into back()) to one consumer thread (shows latest()) without locks.
+ * of the three slots the producer owns one, the consumer owns one and the third holds the newest published frame.
+ * publish swaps the producer slot with the third one, latest swaps the consumer slot with it when a new frame is
+ * there, both with a single atomic exchange. neither side ever waits for the other: a slow consumer skips frames, a
+ * slow producer shows the last frame again.
+ *
+ * the producer can replace its slot, e.g. with a bigger framebuffer after a resize.
+ */
+public final class TripleBuffer<T> {
+    private static final int INDEX = 0b011;
+    private static final int FRESH = 0b100; // the middle slot holds a frame the consumer has not taken yet
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1); // index of the middle slot | FRESH
+    private int back = 0; // producer only
+    private int front = 2; // consumer only
+    private boolean published = false; // consumer only, front holds a frame
+
+    /**
+     * the slots start empty (null), the producer fills them with setBack
+     */
+    public TripleBuffer() {
+    }
+
+    /**
+     * the slot the producer renders into, null until the producer sets it
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T)slots[back];
+    }
+
+    /**
+     * replaces the slot of the producer
+     */
+    public void setBack(T frame) {
+        slots[back] = frame;
+    }
+
+    /**
+     * hands the back slot to the consumer and takes the middle one as the new back slot
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * the newest published frame, empty before the first publish. the frame stays the consumer's until the next call
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<T> latest() {
+        if((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+            published = true;
+        }
+        return published ? Optional.of((T)slots[front]) : Optional.empty();
+    }
+}
@@ -1,11 +1,9 @@
 package de.rsh.rycst;
 
 import java.awt.BorderLayout;
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
@@ -15,8 +13,7 @@ import java.awt.event.KeyListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.Optional;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -29,19 +26,15 @@ import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import de.rsh.game.Loop;
-import de.rsh.game.RayCaster;
-import de.rsh.game.Texture;
-import de.rsh.game.RayCaster.Side;
-import de.rsh.graph.Vec2Arena;
-import de.rsh.graph.Vec2Arena;
+import de.rsh.game.QualityGovernor;
+import de.rsh.game.TripleBuffer;
 import de.rsh.graph.Vec2d;
 import de.rsh.rycst.game.GameState;
-import de.rsh.rycst.game.Sprite;
+import de.rsh.rycst.game.MappedMapStore;
 import de.rsh.rycst.game.WorldMap;
-import de.rsh.utils.MathUtils;
-import de.rsh.utils.Pair;
 
 final class GameEvent {
         public enum GameEventTag { MOVE_AHEAD, MOVE_BACK, TURN_RIGHT, TURN_LEFT, MOUSE_MOVE, RETARD, STOP_TURNING };
@@ -75,69 +68,20 @@ public class App extends JFrame {
     public final long FRAME_DURATION_NANOS=1000_000_000/FPS; // nano secds
     private Thread loop;
     private GameState gameState;
-    private Vec2Arena a1 = new Vec2Arena(100); // sprites arena
-    private Vec2Arena a2 = new Vec2Arena(10000000); // floor and ceiling rendering Auxiliary Vectors Arena
-    private float[] hsbBuf = new float[3];
-
-    private volatile Object sceneImgSync = new Object(); // will be resized in ui thread (on resize) an used on loop thread...may cause issues
-    private volatile BufferedImage sceneImg; // will be resized in ui thread (on resize) an used on loop thread...may cause issues
-    private volatile Graphics2D sceneGraphics; // will be resized in ui thread (on resize) an used on loop thread...may cause issues
-
-
-    private volatile double[] zBuffer = null; // will be resized on ui threads resize event
-
-    private BufferedImage texGreenO = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.GREEN_OVAL.get(textureWidth,textureHeight);
-        texGreenO.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texRedX = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.RED_WITH_BLACK_CROSS.get(textureWidth,textureHeight);
-        texRedX.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texRedBrick = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.RED_BRICKS.get(textureWidth,textureHeight);
-        texRedBrick.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texVertYello = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.VERT_YELLO.get(textureWidth,textureHeight);
-        texVertYello.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texHrzBlu = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.HORIZ_BLUE.get(textureWidth,textureHeight);
-        texHrzBlu.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texGray = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.SLOPED_GRAYSCALE.get(textureWidth,textureHeight);
-        texGray.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texXorGray = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.XOR_GRAYSCALE.get(textureWidth,textureHeight);
-        texXorGray.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texTest1 = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.TEST1.get(textureWidth,textureHeight);
-        texTest1.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texTest2 = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.TEST2.get(textureWidth,textureHeight);
-        texTest2.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-    private BufferedImage texBlueGrad = new BufferedImage(textureWidth, textureHeight, BufferedImage.TYPE_INT_RGB);
-    {
-        var texture = Texture.BLUE_GRAD.get(textureWidth,textureHeight);
-        texBlueGrad.setRGB(0, 0, texture.width(), texture.height(), texture.arr(), 0, texture.width());
-    }
-
-    private   Sprite<Integer> sprite =  new Sprite<Integer>(a1.c(6.5, 16.5), texGreenO);
+    // level from a map file (see MappedMapStore) instead of WorldMap, the camera starts in the center (-Drycst.mapFile=...)
+    private final Optional<String> mapFile = Optional.ofNullable(System.getProperty("rycst.mapFile"));
+    private Optional<MappedMapStore> mapStore = Optional.empty(); // the opened map file, closed when the loop is done
+    private volatile Renderer renderer; // created with gameState, renders on the loop thread
+    // frames rendered on the loop thread, the ui thread paints the newest one
+    private final TripleBuffer<BufferedImage> frames = new TripleBuffer<>();
+    private volatile long sceneSize = 0; // canvas width << 32 | height, set by the ui thread, the loop thread applies it between frames
+    private long renderedVersion = -1; // game state version and size of the last published frame, loop thread only
+    private int renderedWidth, renderedHeight;
+    private boolean renderedComplete = true; // the last published frame has no interlaced (reprojected) columns, loop thread only
+    // the frames are rendered at scale x canvas size to stay within FRAME_DURATION_NANOS, -Drycst.minScale=s -Drycst.maxScale=s
+    private final QualityGovernor governor = new QualityGovernor(FRAME_DURATION_NANOS,
+                                                                 Double.parseDouble(System.getProperty("rycst.minScale", "0.5")),
+                                                                 Double.parseDouble(System.getProperty("rycst.maxScale", "1.0")));
 
     private static final int INITIAL_QUEUE_CAPACITY = 11;
     public PriorityBlockingQueue<GameEvent> eventQueue =
@@ -148,7 +92,6 @@ public class App extends JFrame {
                                                 } 
                                              });
     private JComponent canvas;
-    private double frustrumLen = Math.sqrt(WorldMap.mapHeight*WorldMap.mapHeight + WorldMap.mapWidth*WorldMap.mapWidth); // the diagonal
 
     private App() {
         var that = this;
@@ -156,7 +99,12 @@ public class App extends JFrame {
 			public void run() {
                 initSwing();
                 setVisible(true); 
-                gameState = new GameState(WorldMap.mapWidth/2.0, WorldMap.mapHeight/2.0, WorldMap.map.clone());
+                mapStore = mapFile.map(f -> MappedMapStore.open(Path.of(f)));
+                gameState = mapStore.map(m -> new GameState(m.width()/2.0, m.height()/2.0, m))
+                                   .orElseGet(() -> new GameState(WorldMap.mapWidth/2.0, WorldMap.mapHeight/2.0, WorldMap.map.clone()));
+                // textures, shade tables and potentially visible sets take a while, build them off the ui thread,
+                // the loop renders as soon as the renderer is there
+                Thread.ofPlatform().name("rycst-renderer-setup").start(() -> renderer = new Renderer(gameState, textureWidth, textureHeight));
                 loop = Loop.loop(FRAME_DURATION_NANOS).apply(that);
 			}
 		});
@@ -226,21 +174,16 @@ public class App extends JFrame {
         canvas = new JPanel() {
             @Override protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                that.setTitle(String.format("%s | Frame Rate: %s", title, gameState.getFPS().map(f->String.format("%.1f", f)).orElse("-")));
                 draw((Graphics2D)g);
             }
         };
         add(canvas);
+        // an idle view publishes no frames and is not repainted, so the title has its own timer
+        new Timer(500, e -> setTitle(String.format("%s | Frame Rate: %s | Scale: %.2f", title, gameState.getFPS().map(f->String.format("%.1f", f)).orElse("-"), governor.scale())))
+            .start();
         canvas.addComponentListener(new ComponentAdapter() {
            public void componentResized(ComponentEvent e) {
-                sceneImg = null;
-                synchronized(sceneImgSync) {
-                    sceneImg = new BufferedImage(e.getComponent().getWidth(), e.getComponent().getHeight(), BufferedImage.TYPE_INT_ARGB);
-                    sceneGraphics = sceneImg.createGraphics();
-                    sceneGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    sceneGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-                    zBuffer = new double[e.getComponent().getWidth()];
-                }
+                sceneSize = (long)e.getComponent().getWidth() << 32 | e.getComponent().getHeight();
            }
         });
 
@@ -330,6 +273,12 @@ public class App extends JFrame {
 
     public void finish() {
         loop.interrupt();
+        try {
+            loop.join(); // the loop thread may still read the map
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mapStore.ifPresent(MappedMapStore::close);
         // TODO remove listeners
     }
 
@@ -340,9 +289,36 @@ public class App extends JFrame {
             super.getPreferredSize() : new Dimension(getWidth(), getHeight());
     }
 
-    // render to graphics system
+    // render the next frame on the loop thread, hand it to the ui thread. an unchanged frame (same game state version
+    // and size) is not rendered again, the ui thread keeps showing the last one. with interlaced walls the picture
+    // only stands still after one more frame casting every column
     public  void render(){
-        repaint();
+        var renderer = this.renderer;
+        if(renderer == null) return; // still being built
+        var size = sceneSize;
+        if((int)(size >>> 32) <= 0 || (int)size <= 0) return;
+        var width = governor.scaled((int)(size >>> 32));
+        var height = governor.scaled((int)size);
+        var version = gameState.version();
+        var changed = version != renderedVersion || width != renderedWidth || height != renderedHeight;
+        if(!changed) {
+            if(renderedComplete) return;
+            renderer.interlacedCaster().castNextFrameCompletely();
+        }
+        renderedComplete = !changed || renderer.interlacedCaster().factor() == 1;
+        renderedVersion = version;
+        renderedWidth = width;
+        renderedHeight = height;
+        var frame = frames.back();
+        if(frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            frames.setBack(frame);
+        }
+        var t = System.nanoTime();
+        renderer.render(frame);
+        governor.frame(System.nanoTime() - t);
+        frames.publish();
+        canvas.repaint();
     }
 
     // update game state
@@ -376,388 +352,8 @@ public class App extends JFrame {
         }
     }
 
+    // paint the newest frame upscaled to the canvas (nearest neighbour), at scale 1 it is a plain blit
     public  void draw(Graphics2D g){
-        if(sceneImg == null) return; 
-        synchronized(sceneImgSync)  {
-    //        drawBackground(g);
-            drawForeground(sceneGraphics);
-            g.drawImage(sceneImg, null, null);
-
-        }
-    }
-    private void drawForeground(Graphics2D g) {
-        g.setColor(new Color(0xff,0xff,0xff,255));
-        drawFloor(g);
-        var trace = Optional.of((List<Pair<Double,Double>>)new ArrayList<Pair<Double,Double>>());
-        //drawGameField3D(g, Optional.empty());
-        drawGameField3D_rsh(g, trace);
-        drawSprite(g);
-        drawGameFieldMiniMap(g, new Color(0xbb,0xbb,0xbb,0x55), 1, 1, 0.3, trace);
-    }
-
-    private Color worldFieldToColor(int field) {
-
-            switch(field)
-            {
-                case 1:  return  Color.RED;    
-                case 2:  return  Color.GREEN;  
-                case 3:  return  Color.BLUE;   
-                case 4:  return  Color.WHITE;  
-                default: return  Color.YELLOW; 
-            }
-    }
-
-    @SuppressWarnings("unused") // I leave the lodev implementation as a reference and best practices
-    private void drawGameField3D(Graphics2D g, Optional<List<Pair<Double,Double>>> trace) {
-        RayCaster
-        .drawGameField3D_lodev(canvas.getWidth(),canvas.getHeight(),
-                               gameState.posX(), gameState.posY(),
-                               gameState.dirX(), gameState.dirY(),
-                               gameState.ncpX(), gameState.ncpY(),
-                               //(mapX, mapY) -> (rayCastState.map[mapY][mapX] != WorldMap.SPACE),
-                               //(mapX, mapY) -> (gameState.map(mapX,mapY) != WorldMap.SPACE),
-                               gameState::isSpace,
-                               (side,x,y1,y2,mapX, mapY) -> {
-                                    //choose wall color
-                                    Color color = worldFieldToColor(gameState.map(mapX,mapY));
-
-                                    //give x and y sides different brightness
-                                    if(side == 1) {color = color.darker();}
-
-                                    //draw the pixels of the stripe as a vertical line
-                                    g.setColor(color);
-                                    g.drawLine(x, y1, x, y2);
-                               },
-                               trace);
-        
-    }
-
-    private void drawGameFieldMiniMap(Graphics2D g, final Color backColor, final int posX, final int posY, final double scale, Optional<List<Pair<Double,Double>>> trace) {
-        final var saveColor = g.getColor();
-        //final var map = gameState.map;
-        final var w = scale*canvas.getWidth();
-        final var h = scale*canvas.getHeight();
-        final var fieldHeight = h/gameState.mapHeight();
-        final var fieldWidth = w/gameState.mapWidth();
-        g.setColor(backColor);
-
-        // Background
-        g.fillRect(posX, posY, (int)(posX+w), (int)(posY + h));
-
-        // world
-        for(int y=0; y<gameState.mapHeight(); y++) {
-            for(int x= 0; x<gameState.rowWidth(y); x++) {
-                final var field = gameState.map(x,y); 
-                final var fieldUpperX = (int)(posX + x*fieldWidth);
-                final var fieldUpperY = (int)(posY + y*fieldHeight);
-                switch (field) {
-                    case WorldMap.SPACE:
-                        // leave transparent
-                        break;
-                    case WorldMap.OUTERWALL:
-                    {
-                        g.drawImage(texHrzBlu, fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
-                    }
-                    break;
-                    case WorldMap.PILAR:
-                    {
-
-                        g.drawImage(texVertYello, fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
-                    }
-                    break;
-                    case WorldMap.HOUSEWALL:
-                    {
-
-                        g.drawImage(texRedBrick, fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
-                    }
-                    break;
-                    case WorldMap.COTTAGEWALL:
-                    {
-
-                        g.drawImage(texRedX, fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
-                    }
-                    break;
-                
-                    default:
-                        final Color color = worldFieldToColor(field);
-                        g.setColor(color);
-                        g.fillRect(fieldUpperX, fieldUpperY, (int)fieldWidth, (int)fieldHeight);
-                        break;
-                }
-            }
-        }
-
-        // player / camera
-        g.setColor(Color.BLACK);
-        var cameraR = (Math.min(fieldHeight, fieldWidth)*0.7);
-        var cameraX = (posX + fieldWidth*gameState.posX() - cameraR/2.0);
-        var cameraY = (posY + fieldHeight*gameState.posY() - cameraR/2.0);
-        g.fillOval((int)cameraX, (int)cameraY, (int)cameraR, (int)cameraR);
-
-        // ray
-        var rayFromX = (posX + fieldWidth*gameState.posX() );
-        var rayFromY = (posY + fieldHeight*gameState.posY());
-        var rayToX = (rayFromX + fieldWidth*gameState.dirX());
-        var rayToY = (rayFromY + fieldWidth*gameState.dirY());
-        g.drawLine((int)rayFromX, (int)rayFromY, (int)rayToX, (int)rayToY);
-
-        // frustrum
-        var frustrumFromX = rayToX - fieldWidth*gameState.ncpX();
-        var frustrumFromY = rayToY - fieldWidth*gameState.ncpY();
-        var frustrumToX = rayToX + fieldWidth*gameState.ncpX();
-        var frustrumToY = rayToY + fieldWidth*gameState.ncpY();
-        g.drawLine((int)frustrumFromX, (int)frustrumFromY, (int)frustrumToX, (int)frustrumToY);
-        g.drawLine((int)rayFromX, (int)rayFromY, (int)frustrumFromX, (int)frustrumFromY);
-        g.drawLine((int)rayFromX, (int)rayFromY, (int)frustrumToX, (int)frustrumToY);
-
-        // trace
-        g.setColor(Color.LIGHT_GRAY);
-        trace.ifPresent(tr -> tr.stream().forEach(xy -> {
-            var toX = fieldWidth*xy.fst().doubleValue();
-            var toY = fieldHeight*xy.snd().doubleValue();
-            g.drawLine((int)rayFromX, (int)rayFromY,(int)toX, (int)toY);
-        }));
-
-        // reset color
-        g.setColor(saveColor);
-    }
-
-
-    private void drawGameField3D_rsh(Graphics2D g, Optional<List<Pair<Double,Double>>> trace) {
-//        var map = gameState.map;
-
-        double posX   = gameState.posX(), posY   = gameState.posY();  //x and y start position
-        double dirX   = gameState.dirX(), dirY   = gameState.dirY(); //idirection vector
-        double planeX = gameState.ncpX(), planeY = gameState.ncpY(); //the 2d raycaster version of camera plane
-
-        //double time = 0; //time of current frame
-        //double oldTime = 0; //time of previous frame
-        var width = Math.min(canvas.getWidth(), zBuffer.length); // TODO there is asynchronity between canvas width set and the resize event where zBuffer is created, but where???
-        var w = (double)width;
-        var h = (double)canvas.getHeight();
-
-        var pos = new Vec2d(posX, posY);
-        var dir = new Vec2d(dirX, dirY);
-        var ncp = new Vec2d(planeX, planeY);
-        var ncpFrom = pos.add(dir).sub(ncp);
-        var ncpTo = pos.add(dir).add(ncp);
-        var ncpDir = ncpTo.sub(ncpFrom);
-        var ncpLen = ncpDir.len();
-        var ncpStrideDist = ncpLen / (double)w;
-        var ncpStride = ncpDir.scaled(ncpStrideDist);
-
-
-        var ncpTraverser = ncpFrom;
-        // TODO: having a texture with the width of tw only tw stripes have to be drawn
-        for(int x=0; x<width; x++) {
-            var rayDir = ncpTraverser.sub(pos).normalized();
-            //var maybeCastRes = rc.rayCastToGrid(pos, rayDir, (c) -> (map[c.snd()][c.fst()] != WorldMap.SPACE));
-            var maybeCastRes = RayCaster.rayCastUntilHit(pos, rayDir,
-                                                         WorldMap.mapWidth, WorldMap.mapHeight,
-                                                         //(c) -> (map[c.snd()][c.fst()] != WorldMap.SPACE));
-                                                         (c) -> gameState.isSpace(c.fst(), c.snd()));
-            if(maybeCastRes.isPresent()) {
-                var castRes  = maybeCastRes.get();
-                var castPos  = castRes.fst();
-                var castSide = castRes.snd();
-                var castCell = castRes.thr();
-
-                if(trace.isPresent()) {
-                    trace.get().add(new Pair<Double, Double>(castPos.x(), castPos.y()));
-                }
-
-                // now I need the perpedicular distance between castPos and the camera plane 
-                double perpDist = castPos.perpDistToLine(pos, ncp);
-                //var dist = castPos.sub(pos).len(); <- will give fisheye effect
-                if(x >= zBuffer.length) {
-                    System.err.printf("out of bounds %d of %d of %d\n", x, zBuffer.length, canvas.getWidth());
-                }
-                zBuffer[x] = perpDist;
-
-                //Calculate height of line to draw on screen
-                double lineHeight = (h / perpDist);
-
-                //calculate lowest and highest pixel to fill in current stripe
-                double drawStartClip = 0;
-                double drawEndClip = 0;
-                double factorStart = 0;
-                double factorEnd = 1;
-                double drawStart = -lineHeight / 2 + h / 2;
-                double drawEnd = lineHeight / 2 + h / 2;
-                if(drawStart < 0) {
-                    drawStartClip = -drawStart;
-                    factorStart = drawStartClip/lineHeight;
-                    drawStart = 0;
-                }
-                if(drawEnd >= h) {
-                    //drawEndClip = drawEnd - (h-1.0);
-                    //factorEnd = 1.0 - drawEndClip/lineHeight;
-                    //drawEnd = h-1;
-                    drawEndClip = drawEnd - (h);
-                    factorEnd = 1.0 - drawEndClip/lineHeight;
-                    drawEnd = h;
-                }
-
-
-                Vec2d _castCell = Vec2d.fromPair(castCell);
-                double castCellXRaw = castPos
-                                                .sub(_castCell)
-                                                .map(v ->  Math.abs(Side.Hor == castSide ? v.x() : 1 - v.y())); // "1 -"" to avoid mirror effect with textures 
-                double castCellX = castCellXRaw * textureWidth;
-                double castCellStripeWidth = 1;
-                double texStart = MathUtils.lerp(0, textureHeight, factorStart);
-                double texEnd = MathUtils.lerp(0, textureHeight, factorEnd);
-
-                //choose wall color
-                var cell = gameState.map(castCell.fst(), castCell.snd());
-                switch (cell) {
-                    case WorldMap.SPACE:
-                        //transparent
-                        break;
-                    case WorldMap.PILAR:
-                    {
-                        g.drawImage(texVertYello, x, (int)drawStart, x+1, (int)drawEnd,
-                                    (int)castCellX, 0, (int)(castCellX + castCellStripeWidth), textureHeight,
-                                    null);
-                    }
-                    break;
-                    case WorldMap.OUTERWALL:
-                    {
-                        g.drawImage(texHrzBlu, x, (int)drawStart, x+1, (int)drawEnd,
-                                    (int)castCellX, 0, (int)(castCellX + castCellStripeWidth), textureHeight,
-                                    null);
-                    }
-                    break;
-                    case WorldMap.HOUSEWALL:
-                    {
-                        g.drawImage(texRedBrick, x, (int)drawStart, x+1, (int)drawEnd,
-                                    (int)castCellX, (int)(texStart), (int)(castCellX + castCellStripeWidth), (int)(texEnd),
-                                    null);
-                    }
-                    break;
-                    case WorldMap.COTTAGEWALL:
-                    {
-                        //g.drawImage(texRedX, x, (int)drawStart, x+1, (int)drawEnd,
-                        g.drawImage(texTest1, x,(int)Math.round(drawStart), x+1,(int)Math.round(drawEnd),
-                                    (int)castCellX, (int)(texStart), (int)(castCellX + castCellStripeWidth), (int)(texEnd),
-                                    null);
-                    }
-                    break;
-                
-                    default:
-                        // if no texture maybe a color is provided
-                        Color color = worldFieldToColor(cell);
-
-                        //give x and y sides different brightness
-                        if(castSide == Side.Ver) {color = color.darker();}
-
-                        //draw the pixels of the stripe as a vertical line
-                        g.setColor(color);
-                        g.drawLine(x, (int)drawStart, x, (int)drawEnd);
-                        break;
-                }
-            };
-
-            ncpTraverser = ncpTraverser.add(ncpStride);
-        }
-
-    }
-
-    /**
-     * heuristics for rgba coded greenesh intensity value
-     * @param intensity signed double -1 to 1 
-     * @return
-     */
-    private int rgbaCodedIntensity(int intensity) {
-    var intensity_ = Math.clamp(intensity, -1, 1);
-    int alpha = (int)(Math.floor(128 * Math.abs(intensity_ + 1))) - 1 ; // 0..255
-    int R = intensity_ < 0 ? 0 : 255;
-    int G = R;
-    int B = intensity_ > 0 ? 0 : 255;
-    return  R<<32 | G << 16 | B << 8 | alpha;
-    }
-
-    private void drawFloor(Graphics2D g) {
-        a2.clear();
-
-        double posX   = gameState.posX(), posY   = gameState.posY();  //x and y start position
-        double dirX   = gameState.dirX(), dirY   = gameState.dirY(); //idirection vector
-        double planeX = gameState.ncpX(), planeY = gameState.ncpY(); //the 2d raycaster version of camera plane
-
-        var w = sceneImg.getWidth();
-        var h = sceneImg.getHeight();
-
-        var pos = a2.c(posX, posY);
-        var dir = a2.c(dirX, dirY);
-        var ncp = a2.c(planeX, planeY);
-
-        
-        //var near1 = pos.add(dir).sub(ncp);
-        var near1 = a2.sub(a2.add(pos, dir),ncp);
-        //var near2 = pos.add(dir).add(ncp);
-        var near2 = a2.add(a2.add(pos, dir),ncp);
-
-        //var far1 = near1.add(near1.sub(pos).normalized().scaled(frustrumLen));
-        var far1 = a2.add(near1, a2.scaled(a2.normalized(a2.sub(near1,pos)), frustrumLen));
-        //var far2 = near2.add(near2.sub(pos).normalized().scaled(frustrumLen));
-        var far2 = a2.add(near2, a2.scaled(a2.normalized(a2.sub(near2,pos)), frustrumLen));
-
-        //var horz1 = far1.sub(near1).normalized();
-        var horz1 = a2.normalized(a2.sub(far1,near1));
-        //var horz2 = far2.sub(near2).normalized();
-        var horz2 = a2.normalized(a2.sub(far2,near2));
-
-
-        var halfScreenH = h/2;
-        var dblHalfScreenH = (double)halfScreenH;
-        for(int y=1; y < halfScreenH; y+=1 ) {
-            double dblY = (double)y;
-            double sampleDepth = ((double)h)/dblY; // flipped because of perspective projection rules
-            var start = a2.add(a2.scaled(horz1,sampleDepth),near1);
-            var end = a2.add(a2.scaled(horz2,sampleDepth),near2);
-            for(int x=0; x<w; x+=1) {
-                double sampleWidth = (double)x/((double)w);
-
-                //var castPos = a2.c(sampleWidth*WorldMap.mapWidth, sampleDepth*WorldMap.mapHeight);
-                //double perpDist = a2.perpDistToLine(castPos, pos, ncp);
-
-                var sample = a2.add(a2.scaled(a2.sub(end,start),sampleWidth),start);
-                var sampleGridPart = a2.sub(sample,a2.floor(sample));
-                var sampleTextureCoords = a2.mul(sampleGridPart, a2.c(textureWidth,textureHeight));
-                var rgb_raw = texXorGray.getRGB((int)a2.x(sampleTextureCoords), (int)a2.y(sampleTextureCoords));
-                Color.RGBtoHSB((rgb_raw>>16)&0xFF, (rgb_raw>>8)&0xFF, (rgb_raw>>0)&0xFF, hsbBuf);
-                var distanceMakeDarkerFactor = (dblY)/(dblHalfScreenH);
-                hsbBuf[2] *= distanceMakeDarkerFactor;
-                var rgb = Color.HSBtoRGB(hsbBuf[0], hsbBuf[1], hsbBuf[2]);
-                try {
-                        sceneImg.setRGB(x,y+halfScreenH, rgb);
-                } catch (Exception e) {
-                    System.err.printf("scene.w:%d, scene.h:%d, width:%d, height:%d, x:%d, y:%d\n", sceneImg.getWidth(), sceneImg.getHeight(), w,h,x,y+h/2);
-                }
-
-                rgb_raw = texBlueGrad.getRGB((int)a2.x(sampleTextureCoords), (int)a2.y(sampleTextureCoords));
-                Color.RGBtoHSB((rgb_raw>>16)&0xFF, (rgb_raw>>8)&0xFF, (rgb_raw>>0)&0xFF, hsbBuf);
-                hsbBuf[2] *= distanceMakeDarkerFactor;
-                rgb = Color.HSBtoRGB(hsbBuf[0], hsbBuf[1], hsbBuf[2]);
-                try {
-                    sceneImg.setRGB(x,h/2-y, rgb);
-                } catch (Exception e) {
-                    System.err.printf("scene.w:%d, scene.h:%d, width:%d, height:%d, x:%d, y:%d\n", sceneImg.getWidth(), sceneImg.getHeight(), w,h,x,y+h/2);
-                }
-            }
-        }
-    }
-
-    private void drawSprite(Graphics2D g) {
-       int clearPoint = a1.clearPoint();
-       int pos = a1.c(gameState.posX(), gameState.posY());
-       int dir = a1.c(gameState.dirX(), gameState.dirY());
-       int ncp = a1.c(gameState.ncpX(), gameState.ncpY());
-       double perpDist = a1.perpDistToLine(sprite.getPos(), pos, ncp);
-
-       int cameraToSprite = a1.sub(sprite.getPos(), pos);
-
-
-       a1.clearFrom(clearPoint); // all vecors genrated in this methods are local temporary
+        frames.latest().ifPresent(frame -> g.drawImage(frame, 0, 0, canvas.getWidth(), canvas.getHeight(), null));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package de.rsh.rycst;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import de.rsh.game.AssetPack;
+import de.rsh.game.Texture;
+import de.rsh.game.TextureAtlas;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * builds an AssetPack: the procedural textures (named like the Texture constants) and the PNGs of directories
+ * (named like the file without .png), all scaled to size x size. a PNG named like a Texture, e.g. RED_BRICKS.png,
+ * replaces the procedural one, in the renderer too (rycst.assetPack). the other PNGs are walls of the materials
+ * WorldMap.TEXTURED + their atlas id, printed after packing. the packer also indexes every texture and its mip levels
+ * (palettes and indices, quantized by median cut where a level has more than 256 colours), the renderer maps them
+ * and only shades the palettes.
+ *
+ * usage: AssetPacker pack-file size [png-directory ...]
+ */
+public final class AssetPacker {
+    private AssetPacker() {
+    }
+
+    public static void main(String[] argv) {
+        if(argv.length < 2) {
+            System.err.println("usage: AssetPacker pack-file size [png-directory ...]");
+            System.exit(1);
+        }
+        var pack = Path.of(argv[0]);
+        var size = Integer.parseInt(argv[1]);
+        var textures = new LinkedHashMap<String, Texture.Image>();
+        for(var texture : Texture.values()) {
+            textures.put(texture.name(), texture.get(size, size));
+        }
+        for(int i=2; i<argv.length; i++) {
+            addPngs(Path.of(argv[i]), size, textures);
+        }
+        AssetPack.write(pack, textures);
+        try(var written = AssetPack.open(pack)) {
+            var quantized = 0;
+            for(int id=0; id<written.count(); id++) {
+                for(var level : written.indexed(id)) {
+                    if(level.quantized()) quantized++;
+                }
+            }
+            System.out.printf("%s: %d textures of %dx%d, %d indexed levels quantized%n", pack, textures.size(), size, size, quantized);
+            var names = TextureAtlas.names(written);
+            for(int id=Texture.values().length; id<names.size(); id++) {
+                System.out.printf("  material %d: %s%n", WorldMap.TEXTURED + id, names.get(id));
+            }
+        }
+    }
+
+    static void addPngs(Path dir, int size, Map<String, Texture.Image> textures) {
+        try(var files = Files.list(dir)) {
+            for(var file : files.filter(f -> f.getFileName().toString().toLowerCase().endsWith(".png")).sorted().toList()) {
+                var name = file.getFileName().toString();
+                var image = ImageIO.read(file.toFile());
+                if(image == null) throw new IllegalArgumentException(file + " is no readable PNG");
+                textures.put(name.substring(0, name.length() - ".png".length()), scaled(image, size));
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Texture.Image scaled(BufferedImage image, int size) {
+        var scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        var g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, size, size, null);
+        g.dispose();
+        return new Texture.Image(size, size, scaled.getRGB(0, 0, size, size, null, 0, size));
+    }
+}
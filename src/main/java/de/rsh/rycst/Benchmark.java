@@ -0,0 +1,686 @@
+package de.rsh.rycst;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
+import java.nio.file.Files;
+import java.util.Random;
+
+import de.rsh.game.IndexedTexture;
+import de.rsh.game.InterlacedCaster;
+import de.rsh.game.ParallelBands;
+import de.rsh.game.PotentiallyVisibleSet;
+import de.rsh.game.RayCaster;
+import de.rsh.game.RayHitBuffer;
+import de.rsh.game.TextureAtlas;
+import de.rsh.rycst.game.GameState;
+import de.rsh.rycst.game.MappedMapStore;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * simple benchmarks of the render passes, no swing needed:
+ *   java --add-modules jdk.incubator.vector -cp target/classes de.rsh.rycst.Benchmark [skip|occupancy|pvs|engines|walls|floor|columns|frame|interlace|bigmap [size]]
+ * every benchmark runs a warm up round first and prints its results to stdout
+ */
+public class Benchmark {
+    private static final int WIDTH = 1920;
+    private static final int POSES = 200;
+
+    public static void main(String[] argv) {
+        var what = argv.length > 0 ? argv[0] : "all";
+        switch (what) {
+            case "skip":
+                spaceSkipping();
+                break;
+            case "occupancy":
+                occupancy();
+                break;
+            case "engines":
+                engines();
+                break;
+            case "walls":
+                walls();
+                break;
+            case "floor":
+                floor();
+                break;
+            case "columns":
+                columns();
+                break;
+            case "frame":
+                frame();
+                break;
+            case "interlace":
+                interlace();
+                break;
+            case "corridor":
+                corridor();
+                break;
+            case "indexed":
+                indexed();
+                break;
+            case "pvs":
+                pvs();
+                break;
+            case "bigmap":
+                bigMap(argv.length > 1 ? Integer.parseInt(argv[1]) : 65536);
+                break;
+            case "all":
+                spaceSkipping();
+                occupancy();
+                pvs();
+                engines();
+                walls();
+                floor();
+                columns();
+                frame();
+                interlace();
+                corridor();
+                indexed();
+                break;
+            default:
+                System.err.println("unknown benchmark " + what);
+                break;
+        }
+    }
+
+    /**
+     * a level without inner walls, only some pillars, enclosed by OUTERWALL
+     */
+    static int[][] openField(int size, double pillarDensity, long seed) {
+        var random = new Random(seed);
+        var map = new int[size][size];
+        for(int y=0; y<size; y++) {
+            for(int x=0; x<size; x++) {
+                if(x == 0 || y == 0 || x == size-1 || y == size-1) {
+                    map[y][x] = WorldMap.OUTERWALL;
+                } else if(random.nextDouble() < pillarDensity) {
+                    map[y][x] = WorldMap.PILAR;
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * a corridor 3 cells wide and length cells long, PILAR walls on the long sides, OUTERWALL at the ends
+     */
+    static int[][] corridor(int length) {
+        var map = new int[length][5];
+        for(int y=0; y<length; y++) {
+            for(int x=0; x<5; x++) {
+                if(y == 0 || y == length-1) {
+                    map[y][x] = WorldMap.OUTERWALL;
+                } else if(x == 0 || x == 4) {
+                    map[y][x] = WorldMap.PILAR;
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * camera poses on empty cells: posX, posY, dirX, dirY, planeX, planeY
+     */
+    static double[][] poses(GameState gameState, int n, long seed) {
+        var random = new Random(seed);
+        var poses = new double[n][];
+        var i = 0;
+        while(i < n) {
+            var posX = 1 + random.nextDouble()*(gameState.mapWidth() - 2);
+            var posY = 1 + random.nextDouble()*(gameState.mapHeight() - 2);
+            if(gameState.isSpace((int)posX, (int)posY)) continue;
+            var angle = random.nextDouble()*2*Math.PI;
+            var dirX = Math.cos(angle);
+            var dirY = Math.sin(angle);
+            poses[i++] = new double[] {posX, posY, dirX, dirY, -dirY*0.66, dirX*0.66};
+        }
+        return poses;
+    }
+
+    private static void spaceSkipping() {
+        System.out.println("empty space skipping, lodev's DDA, steps and time per ray");
+        spaceSkipping("WorldMap 24x24", WorldMap.map);
+        spaceSkipping("open field 256x256, 1% pillars", openField(256, 0.01, 1));
+        spaceSkipping("open field 1024x1024, 0.1% pillars", openField(1024, 0.001, 2));
+    }
+
+    private static void spaceSkipping(String name, int[][] map) {
+        var gameState = new GameState(1.5, 1.5, map);
+        var field = gameState.distanceField().orElseThrow();
+        var poses = poses(gameState, POSES, 3);
+        var plain = new RayHitBuffer(WIDTH);
+        var skipping = new RayHitBuffer(WIDTH);
+        long plainSteps = 0, skippingSteps = 0, plainNanos = 0, skippingNanos = 0;
+        var mismatches = 0;
+        for(int round=0; round<2; round++) { // round 0 is the warm up
+            plainSteps = skippingSteps = plainNanos = skippingNanos = 0;
+            mismatches = 0;
+            for(var p : poses) {
+                var t = System.nanoTime();
+                for(int x=0; x<WIDTH; x++) {
+                    plainSteps += RayCaster.castRay_lodev(x, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], gameState::isSpace, plain);
+                }
+                plainNanos += System.nanoTime() - t;
+                t = System.nanoTime();
+                for(int x=0; x<WIDTH; x++) {
+                    skippingSteps += field.castRay_lodev(x, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], skipping);
+                }
+                skippingNanos += System.nanoTime() - t;
+                for(int x=0; x<WIDTH; x++) {
+                    if(plain.cellX(x) != skipping.cellX(x) || plain.cellY(x) != skipping.cellY(x)) mismatches++;
+                }
+            }
+        }
+        var rays = (double)POSES*WIDTH;
+        System.out.printf("  %-36s plain %7.1f steps %7.1f ns | skipping %7.1f steps %7.1f ns | hit cell mismatches %d of %.0f%n",
+                          name, plainSteps/rays, plainNanos/rays, skippingSteps/rays, skippingNanos/rays, mismatches, rays);
+    }
+
+    private static void occupancy() {
+        System.out.println("hit test int[][] vs occupancy bits, lodev's DDA, time per ray");
+        occupancy("WorldMap 24x24", WorldMap.map);
+        occupancy("open field 1024x1024, 0.1% pillars", openField(1024, 0.001, 2));
+        occupancy("open field 4096x4096, 0.01% pillars", openField(4096, 0.0001, 4));
+    }
+
+    private static void occupancy(String name, int[][] map) {
+        var gameState = new GameState(1.5, 1.5, map);
+        var occupancy = gameState.occupancy().orElseThrow();
+        RayCaster.IntIntPredicate array = (x, y) -> map[y][x] != WorldMap.SPACE;
+        var poses = poses(gameState, POSES, 5);
+        var arrayHits = new RayHitBuffer(WIDTH);
+        var bitHits = new RayHitBuffer(WIDTH);
+        long arrayNanos = 0, bitNanos = 0;
+        var mismatches = 0;
+        for(int round=0; round<2; round++) { // round 0 is the warm up
+            arrayNanos = bitNanos = 0;
+            mismatches = 0;
+            for(var p : poses) {
+                var t = System.nanoTime();
+                for(int x=0; x<WIDTH; x++) {
+                    RayCaster.castRay_lodev(x, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], array, arrayHits);
+                }
+                arrayNanos += System.nanoTime() - t;
+                t = System.nanoTime();
+                for(int x=0; x<WIDTH; x++) {
+                    RayCaster.castRay_lodev(x, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], occupancy, bitHits);
+                }
+                bitNanos += System.nanoTime() - t;
+                for(int x=0; x<WIDTH; x++) {
+                    if(arrayHits.cellX(x) != bitHits.cellX(x) || arrayHits.cellY(x) != bitHits.cellY(x)) mismatches++;
+                }
+            }
+        }
+        var rays = (double)POSES*WIDTH;
+        System.out.printf("  %-36s int[][] %7.1f ns | bits %7.1f ns | hit cell mismatches %d of %.0f%n",
+                          name, arrayNanos/rays, bitNanos/rays, mismatches, rays);
+    }
+
+    /**
+     * a size x size level in a temporary map file, pillars only around the center to keep the file sparse
+     */
+    private static void bigMap(int size) {
+        System.out.printf("file backed map %dx%d, lodev's DDA on the store, time per ray%n", size, size);
+        try {
+            var file = Files.createTempFile("rycst", ".map");
+            try(var store = MappedMapStore.create(file, size, size)) {
+                for(int i=0; i<size; i++) {
+                    store.set(i, 0, WorldMap.OUTERWALL);
+                    store.set(i, size-1, WorldMap.OUTERWALL);
+                    store.set(0, i, WorldMap.OUTERWALL);
+                    store.set(size-1, i, WorldMap.OUTERWALL);
+                }
+                var random = new Random(6);
+                var center = Math.min(size - 2, 4096);
+                var from = (size - center)/2;
+                for(int i=0; i<center*center/1000; i++) {
+                    store.set(from + random.nextInt(center), from + random.nextInt(center), WorldMap.PILAR);
+                }
+                var gameState = new GameState(size/2.0, size/2.0, store);
+                var hit = gameState.hitTest();
+                var buf = new RayHitBuffer(WIDTH);
+                var poses = poses(gameState, 20, 7);
+                System.gc();
+                var heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                for(int round=0; round<2; round++) { // round 0 is the warm up
+                    var loads = store.chunkLoads();
+                    var nanos = 0L;
+                    for(var p : poses) {
+                        var t = System.nanoTime();
+                        for(int x=0; x<WIDTH; x++) {
+                            RayCaster.castRay_lodev(x, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], hit, buf);
+                        }
+                        nanos += System.nanoTime() - t;
+                    }
+                    System.gc();
+                    var heapAfter = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                    System.out.printf("  round %d: %9.1f ns per ray | chunks mapped %d, resident %d | heap %d MB -> %d MB%n",
+                                      round, nanos/(double)(poses.length*WIDTH), store.chunkLoads() - loads,
+                                      store.residentChunks(), heap >> 20, heapAfter >> 20);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch(IOException e) {
+            System.err.println("no map file: " + e);
+        }
+    }
+
+    private static void pvs() {
+        System.out.println("potentially visible sets, time to compute, storage and visible cells per camera cell");
+        pvs("WorldMap 24x24", WorldMap.map);
+        pvs("open field 64x64, 1% pillars", openField(64, 0.01, 8));
+    }
+
+    private static void pvs(String name, int[][] map) {
+        var gameState = new GameState(1.5, 1.5, map);
+        var occupancy = gameState.occupancy().orElseThrow();
+        var w = gameState.mapWidth();
+        var h = gameState.mapHeight();
+        var cores = Runtime.getRuntime().availableProcessors();
+        for(var threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+            var t = System.nanoTime();
+            var pvs = PotentiallyVisibleSet.compute(w, h, occupancy, new ParallelBands(threads));
+            var millis = (System.nanoTime() - t)/1e6;
+            try {
+                var bytes = new ByteArrayOutputStream();
+                pvs.write(bytes);
+                t = System.nanoTime();
+                PotentiallyVisibleSet.read(new ByteArrayInputStream(bytes.toByteArray())).orElseThrow();
+                var readMillis = (System.nanoTime() - t)/1e6;
+                long visible = 0, cells = 0;
+                for(int y=0; y<h; y++) {
+                    for(int x=0; x<w; x++) {
+                        if(gameState.isSpace(x, y)) continue;
+                        visible += pvs.visibleCells(x, y);
+                        cells++;
+                    }
+                }
+                System.out.printf("  %-36s %2d threads %8.1f ms | %5d distinct sets, %7d bytes, read %5.1f ms | %5.1f%% of the map visible%n",
+                                  name, threads, millis, pvs.distinctSets(), bytes.size(), readMillis, 100.0*visible/cells/(w*h));
+            } catch(IOException e) {
+                System.err.println(e);
+            }
+        }
+    }
+
+    private static void engines() {
+        System.out.println("lodev's DDA engines against SCALAR on the same poses, time per ray and accuracy");
+        engines("WorldMap 24x24", WorldMap.map);
+        engines("open field 256x256, 1% pillars", openField(256, 0.01, 1));
+        engines("open field 1024x1024, 0.1% pillars", openField(1024, 0.001, 2));
+    }
+
+    private static void engines(String name, int[][] map) {
+        var gameState = new GameState(1.5, 1.5, map);
+        var hit = gameState.hitTest();
+        var poses = poses(gameState, POSES, 9);
+        var serial = new ParallelBands(1);
+        var reference = new RayHitBuffer(WIDTH);
+        var buf = new RayHitBuffer(WIDTH);
+        System.out.println("  " + name);
+        for(var engine : RayCaster.Engine.values()) {
+            if(engine == RayCaster.Engine.PACKET && !RayCaster.isPacketEngineAvailable()) continue;
+            long nanos = 0;
+            var mismatches = 0;
+            var maxError = 0.0;
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                nanos = 0;
+                mismatches = 0;
+                maxError = 0.0;
+                for(var p : poses) {
+                    RayCaster.castColumns_lodev(RayCaster.Engine.SCALAR, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], hit, reference, serial);
+                    var t = System.nanoTime();
+                    RayCaster.castColumns_lodev(engine, WIDTH, p[0], p[1], p[2], p[3], p[4], p[5], hit, buf, serial);
+                    nanos += System.nanoTime() - t;
+                    for(int x=0; x<WIDTH; x++) {
+                        if(reference.cellX(x) != buf.cellX(x) || reference.cellY(x) != buf.cellY(x) || reference.side(x) != buf.side(x)) {
+                            mismatches++;
+                        } else {
+                            maxError = Math.max(maxError, Math.abs(reference.perpDist(x) - buf.perpDist(x))/reference.perpDist(x));
+                        }
+                    }
+                }
+            }
+            System.out.printf("    %-12s %7.1f ns per ray | hit mismatches %d of %d | max relative perpDist error %.1e%n",
+                              engine, nanos/(double)(POSES*WIDTH), mismatches, POSES*WIDTH, maxError);
+        }
+    }
+
+    /**
+     * the textured wall pass of App.drawGameField3D_rsh, Graphics2D.drawImage against the direct int[] writer
+     */
+    private static void walls() {
+        System.out.println("textured wall pass 1920x1080 on WorldMap, Graphics2D.drawImage vs direct int[] writes, time per frame");
+        var height = 1080;
+        var gameState = new GameState(1.5, 1.5, WorldMap.map);
+        var poses = poses(gameState, POSES, 10);
+        var stripes = new WallStripes(64, 64, 1); // no fog, drawImage has none
+        var buf = new RayHitBuffer(WIDTH);
+        var serial = new ParallelBands(1);
+        var graphicsImg = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        var directImg = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        var graphicsPixels = ((DataBufferInt)graphicsImg.getRaster().getDataBuffer()).getData();
+        var directPixels = ((DataBufferInt)directImg.getRaster().getDataBuffer()).getData();
+        for(var interpolation : new Object[] {RenderingHints.VALUE_INTERPOLATION_BILINEAR, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR}) {
+            var g = graphicsImg.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            long graphicsNanos = 0, directNanos = 0, differing = 0;
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                graphicsNanos = directNanos = differing = 0;
+                for(var p : poses) {
+                    RayCaster.castColumns(p[0], p[1], p[2], p[3], p[4], p[5], gameState.mapWidth(), gameState.mapHeight(),
+                                          gameState.hitTest(), WIDTH, buf, serial);
+                    Arrays.fill(graphicsPixels, 0);
+                    Arrays.fill(directPixels, 0);
+                    var t = System.nanoTime();
+                    for(int x=0; x<WIDTH; x++) {
+                        if(buf.isHit(x)) stripes.draw(g, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    graphicsNanos += System.nanoTime() - t;
+                    t = System.nanoTime();
+                    for(int x=0; x<WIDTH; x++) {
+                        if(buf.isHit(x)) stripes.draw(directPixels, WIDTH, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    directNanos += System.nanoTime() - t;
+                    for(int i=0; i<directPixels.length; i++) {
+                        if(graphicsPixels[i] != directPixels[i]) differing++;
+                    }
+                }
+            }
+            g.dispose();
+            System.out.printf("  %-26s drawImage %6.2f ms | direct %6.2f ms | differing pixels %.3f%%%n",
+                              interpolation, graphicsNanos/1e6/POSES, directNanos/1e6/POSES, 100.0*differing/((double)POSES*WIDTH*height));
+        }
+    }
+
+    /**
+     * floor and ceiling pass, the Vec2Arena reference against the scanline version
+     */
+    private static void floor() {
+        for(var lightLevels : new int[] {64, 256}) {
+            floor(lightLevels);
+        }
+    }
+
+    private static void floor(int lightLevels) {
+        System.out.printf("floor and ceiling 1920x1080, Vec2Arena + get/setRGB + HSB vs scanline stepping with %d light levels, time per frame%n", lightLevels);
+        var height = 1080;
+        var gameState = new GameState(1.5, 1.5, WorldMap.map);
+        var poses = poses(gameState, 20, 11);
+        var floorCeiling = new FloorCeiling(64, 64, lightLevels);
+        var frustrumLen = Math.sqrt(WorldMap.mapHeight*WorldMap.mapHeight + WorldMap.mapWidth*WorldMap.mapWidth);
+        var arenaImg = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        var scanlineImg = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        var parallelArenaImg = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        var arenaPixels = ((DataBufferInt)arenaImg.getRaster().getDataBuffer()).getData();
+        var scanlinePixels = ((DataBufferInt)scanlineImg.getRaster().getDataBuffer()).getData();
+        var parallelArenaPixels = ((DataBufferInt)parallelArenaImg.getRaster().getDataBuffer()).getData();
+        var parallelScanlinePixels = new int[scanlinePixels.length];
+        var threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        var bands = new ParallelBands(threads);
+        long arenaNanos = 0, scanlineNanos = 0, parallelArenaNanos = 0, parallelScanlineNanos = 0, differing = 0, notSerial = 0;
+        var maxChannelDiff = 0;
+        for(int round=0; round<2; round++) { // round 0 is the warm up
+            arenaNanos = scanlineNanos = parallelArenaNanos = parallelScanlineNanos = differing = notSerial = 0;
+            maxChannelDiff = 0;
+            for(var p : poses) {
+                var t = System.nanoTime();
+                floorCeiling.drawArena(arenaImg, frustrumLen, p[0], p[1], p[2], p[3], p[4], p[5]);
+                arenaNanos += System.nanoTime() - t;
+                t = System.nanoTime();
+                floorCeiling.draw(scanlinePixels, WIDTH, WIDTH, height, p[0], p[1], p[2], p[3], p[4], p[5]);
+                scanlineNanos += System.nanoTime() - t;
+                t = System.nanoTime();
+                floorCeiling.drawArena(parallelArenaImg, frustrumLen, p[0], p[1], p[2], p[3], p[4], p[5], bands);
+                parallelArenaNanos += System.nanoTime() - t;
+                t = System.nanoTime();
+                floorCeiling.draw(parallelScanlinePixels, WIDTH, WIDTH, height, p[0], p[1], p[2], p[3], p[4], p[5], bands);
+                parallelScanlineNanos += System.nanoTime() - t;
+                for(int i=0; i<arenaPixels.length; i++) {
+                    if(arenaPixels[i] != parallelArenaPixels[i] || scanlinePixels[i] != parallelScanlinePixels[i]) notSerial++;
+                    var a = arenaPixels[i];
+                    var b = scanlinePixels[i];
+                    if(a == b) continue;
+                    differing++;
+                    for(int shift=0; shift<32; shift+=8) {
+                        maxChannelDiff = Math.max(maxChannelDiff, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+                    }
+                }
+            }
+        }
+        System.out.printf("  arena %7.2f ms | scanline %6.2f ms | differing pixels %.2f%%, max channel difference %d%n",
+                          arenaNanos/1e6/poses.length, scanlineNanos/1e6/poses.length,
+                          100.0*differing/((double)poses.length*WIDTH*height), maxChannelDiff);
+        System.out.printf("  %d threads: arena %7.2f ms | scanline %6.2f ms | pixels differing from the serial pass %d%n",
+                          threads, parallelArenaNanos/1e6/poses.length, parallelScanlineNanos/1e6/poses.length, notSerial);
+    }
+
+    /**
+     * direct wall pass straight into the row major image vs into a ColumnBuffer plus the blocked transpose
+     */
+    private static void columns() {
+        System.out.println("direct wall pass, row major writes vs column major buffer + blocked transpose, time per frame");
+        var gameState = new GameState(1.5, 1.5, WorldMap.map);
+        var stripes = new WallStripes(64, 64, 64);
+        var serial = new ParallelBands(1);
+        var background = 0xFF404040; // stands in for floor and ceiling, the transpose has to keep it
+        for(var resolution : new int[][] {{640, 360}, {1280, 720}, {1920, 1080}, {2560, 1440}, {3840, 2160}}) {
+            var width = resolution[0];
+            var height = resolution[1];
+            var poses = poses(gameState, 50, 12);
+            var buf = new RayHitBuffer(width);
+            var rowMajor = new int[width*height];
+            var transposed = new int[width*height];
+            var columns = new ColumnBuffer(width, height);
+            long rowNanos = 0, columnNanos = 0, transposeNanos = 0, differing = 0;
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                rowNanos = columnNanos = transposeNanos = differing = 0;
+                for(var p : poses) {
+                    RayCaster.castColumns(p[0], p[1], p[2], p[3], p[4], p[5], gameState.mapWidth(), gameState.mapHeight(),
+                                          gameState.hitTest(), width, buf, serial);
+                    Arrays.fill(rowMajor, background);
+                    Arrays.fill(transposed, background);
+                    var t = System.nanoTime();
+                    for(int x=0; x<width; x++) {
+                        if(buf.isHit(x)) stripes.draw(rowMajor, width, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    rowNanos += System.nanoTime() - t;
+                    t = System.nanoTime();
+                    columns.clear(0, width);
+                    for(int x=0; x<width; x++) {
+                        if(buf.isHit(x)) stripes.draw(columns, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    var drawn = System.nanoTime();
+                    columns.transposeInto(transposed, width, width, height, serial);
+                    columnNanos += drawn - t;
+                    transposeNanos += System.nanoTime() - drawn;
+                    for(int i=0; i<rowMajor.length; i++) {
+                        if(rowMajor[i] != transposed[i]) differing++;
+                    }
+                }
+            }
+            System.out.printf("  %4dx%-4d row major %6.2f ms | column major %6.2f ms + transpose %6.2f ms = %6.2f ms | differing pixels %d%n",
+                              width, height, rowNanos/1e6/poses.length, columnNanos/1e6/poses.length, transposeNanos/1e6/poses.length,
+                              (columnNanos + transposeNanos)/1e6/poses.length, differing);
+        }
+    }
+
+    /**
+     * full frames through the Renderer (floor and ceiling, walls, sprite, mini map), the camera turns 60 frames per second
+     */
+    private static void frame() {
+        System.out.println("full frames through Renderer, camera turning in the center of WorldMap, time per frame");
+        var gameState = new GameState(WorldMap.mapWidth/2.0, WorldMap.mapHeight/2.0, WorldMap.map);
+        var renderer = new Renderer(gameState, 64, 64);
+        var frameNanos = 1_000_000_000L/60;
+        gameState.turnRight();
+        for(var resolution : new int[][] {{640, 360}, {1280, 720}, {1920, 1080}}) {
+            var pixels = new int[resolution[0]*resolution[1]];
+            long nanos = 0;
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                nanos = 0;
+                for(int frame=0; frame<POSES; frame++) {
+                    gameState.update(frame*frameNanos, frameNanos);
+                    var t = System.nanoTime();
+                    renderer.render(pixels, resolution[0], resolution[1]);
+                    nanos += System.nanoTime() - t;
+                }
+            }
+            System.out.printf("  %4dx%-4d %6.2f ms%n", resolution[0], resolution[1], nanos/1e6/POSES);
+        }
+    }
+
+    /**
+     * interlaced casting with reprojection against casting every column, the camera walks and turns through WorldMap
+     * at 60 frames per second, with a jump every 120 frames
+     */
+    private static void interlace() {
+        System.out.println("interlaced wall casting 1920 columns, camera walking and turning at 60 fps, rays per second of game time");
+        var gameState = new GameState(1.5, 1.5, WorldMap.map);
+        var poses = poses(gameState, 20, 13);
+        var serial = new ParallelBands(1);
+        var frames = 1200;
+        for(var factor : new int[] {1, 2, 3, 4}) {
+            var caster = new InterlacedCaster(factor);
+            var buf = new RayHitBuffer(WIDTH);
+            var reference = new RayHitBuffer(WIDTH);
+            long nanos = 0, wrongCells = 0;
+            var depthError = 0.0;
+            for(int frame=0; frame<frames; frame++) {
+                var p = poses[frame/120 % poses.length];
+                // a slow walk and a turn of 1 degree per frame from the pose, walls are not checked
+                var angle = Math.atan2(p[3], p[2]) + (frame % 120)*Math.toRadians(1);
+                var dirX = Math.cos(angle);
+                var dirY = Math.sin(angle);
+                var posX = Math.clamp(p[0] + dirX*(frame % 120)*0.002, 1, WorldMap.mapWidth - 1.01);
+                var posY = Math.clamp(p[1] + dirY*(frame % 120)*0.002, 1, WorldMap.mapHeight - 1.01);
+                var t = System.nanoTime();
+                caster.castColumns(posX, posY, dirX, dirY, -dirY*0.66, dirX*0.66, gameState.mapWidth(), gameState.mapHeight(),
+                                   gameState.hitTest(), WIDTH, buf, serial);
+                nanos += System.nanoTime() - t;
+                RayCaster.castColumns(posX, posY, dirX, dirY, -dirY*0.66, dirX*0.66, gameState.mapWidth(), gameState.mapHeight(),
+                                      gameState.hitTest(), WIDTH, reference, serial);
+                for(int x=0; x<WIDTH; x++) {
+                    if(buf.isHit(x) != reference.isHit(x) || buf.cellX(x) != reference.cellX(x) || buf.cellY(x) != reference.cellY(x)) {
+                        wrongCells++;
+                    } else if(buf.isHit(x)) {
+                        depthError += Math.abs(buf.perpDist(x) - reference.perpDist(x))/reference.perpDist(x);
+                    }
+                }
+            }
+            var seconds = frames/60.0;
+            System.out.printf("  factor %d: %6.2f ms per frame | cast %8.0f rays/s | saved %8.0f rays/s | %4d full frames | wrong cell %.3f%% of columns, depth error %.4f%%%n",
+                              factor, nanos/1e6/frames, caster.raysCast()/seconds, caster.raysSaved()/seconds, caster.fullFrames(),
+                              100.0*wrongCells/((double)frames*WIDTH), 100.0*depthError/((double)frames*WIDTH));
+        }
+    }
+
+    /**
+     * direct walls and the scanline floor looking down a long corridor, most of the screen shows texels far away:
+     * full size textures against the mip levels of the distance
+     */
+    private static void corridor() {
+        System.out.println("long corridor 5x512 1920x1080, 64x64 textures, direct walls + scanline floor, without vs with mipmaps, time per frame");
+        var height = 1080;
+        var gameState = new GameState(2.5, 1.5, corridor(512));
+        var random = new Random(15);
+        var poses = new double[50][];
+        for(int i=0; i<poses.length; i++) { // near the start, looking down the corridor
+            var angle = Math.PI/2 + (random.nextDouble() - 0.5)*0.2;
+            var dirX = Math.cos(angle);
+            var dirY = Math.sin(angle);
+            poses[i] = new double[] {1.5 + random.nextDouble()*2, 1.5 + random.nextDouble()*8, dirX, dirY, -dirY*0.66, dirX*0.66};
+        }
+        var buf = new RayHitBuffer(WIDTH);
+        var serial = new ParallelBands(1);
+        var pixels = new int[2][WIDTH*height];
+        var wallNanos = new long[2];
+        var floorNanos = new long[2];
+        for(int mipmapped=0; mipmapped<2; mipmapped++) {
+            var stripes = new WallStripes(64, 64, 64, mipmapped == 1);
+            var floorCeiling = new FloorCeiling(64, 64, 64, mipmapped == 1);
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                wallNanos[mipmapped] = floorNanos[mipmapped] = 0;
+                for(var p : poses) {
+                    RayCaster.castColumns(p[0], p[1], p[2], p[3], p[4], p[5], gameState.mapWidth(), gameState.mapHeight(),
+                                          gameState.hitTest(), WIDTH, buf, serial);
+                    var t = System.nanoTime();
+                    floorCeiling.draw(pixels[mipmapped], WIDTH, WIDTH, height, p[0], p[1], p[2], p[3], p[4], p[5]);
+                    floorNanos[mipmapped] += System.nanoTime() - t;
+                    t = System.nanoTime();
+                    for(int x=0; x<WIDTH; x++) {
+                        if(buf.isHit(x)) stripes.draw(pixels[mipmapped], WIDTH, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    wallNanos[mipmapped] += System.nanoTime() - t;
+                }
+            }
+        }
+        long differing = 0; // of the last pose
+        for(int i=0; i<pixels[0].length; i++) {
+            if(pixels[0][i] != pixels[1][i]) differing++;
+        }
+        System.out.printf("  walls %6.2f -> %6.2f ms | floor %6.2f -> %6.2f ms | pixels changed by the mipmaps %.1f%%%n",
+                          wallNanos[0]/1e6/poses.length, wallNanos[1]/1e6/poses.length,
+                          floorNanos[0]/1e6/poses.length, floorNanos[1]/1e6/poses.length, 100.0*differing/pixels[0].length);
+    }
+
+    /**
+     * direct walls and scanline floor with argb textures against palette indexed ones, 64 light levels and mipmaps
+     */
+    private static void indexed() {
+        System.out.println("direct walls + scanline floor 1920x1080 on WorldMap, argb vs palette indexed textures, time per frame");
+        var height = 1080;
+        var gameState = new GameState(1.5, 1.5, WorldMap.map);
+        var poses = poses(gameState, 50, 16);
+        var buf = new RayHitBuffer(WIDTH);
+        var serial = new ParallelBands(1);
+        var atlas = TextureAtlas.of(64, 64);
+        var pixels = new int[2][WIDTH*height];
+        var nanos = new long[2];
+        long differing = 0;
+        for(int indexed=0; indexed<2; indexed++) {
+            var shades = new MipShades(atlas, 64, true, indexed == 1);
+            var images = new TextureImages(atlas);
+            var stripes = new WallStripes(shades, images);
+            var floorCeiling = new FloorCeiling(shades, images);
+            for(int round=0; round<2; round++) { // round 0 is the warm up
+                nanos[indexed] = 0;
+                for(var p : poses) {
+                    RayCaster.castColumns(p[0], p[1], p[2], p[3], p[4], p[5], gameState.mapWidth(), gameState.mapHeight(),
+                                          gameState.hitTest(), WIDTH, buf, serial);
+                    var t = System.nanoTime();
+                    floorCeiling.draw(pixels[indexed], WIDTH, WIDTH, height, p[0], p[1], p[2], p[3], p[4], p[5]);
+                    for(int x=0; x<WIDTH; x++) {
+                        if(buf.isHit(x)) stripes.draw(pixels[indexed], WIDTH, x, height, gameState.map(buf.cellX(x), buf.cellY(x)), buf);
+                    }
+                    nanos[indexed] += System.nanoTime() - t;
+                }
+            }
+        }
+        for(int i=0; i<pixels[0].length; i++) {
+            if(pixels[0][i] != pixels[1][i]) differing++;
+        }
+        long argbBytes = 0, indexedBytes = 0;
+        var quantized = 0;
+        for(int id=0; id<atlas.count(); id++) {
+            var chain = atlas.mipMap(id);
+            for(int level=0; level<chain.levels(); level++) {
+                var texels = chain.level(level);
+                var indexedLevel = IndexedTexture.of(Math.max(1, atlas.width(id) >> level), Math.max(1, atlas.height(id) >> level), texels);
+                argbBytes += 4L*texels.length*64; // a shaded copy per light level
+                indexedBytes += texels.length + 4L*IndexedTexture.PALETTE_SIZE*64;
+                if(indexedLevel.quantized()) quantized++;
+            }
+        }
+        System.out.printf("  argb %6.2f ms | indexed %6.2f ms | differing pixels (last pose) %.3f%% | shaded textures %.1f MB -> %.1f MB, quantized textures (all mip levels) %d%n",
+                          nanos[0]/1e6/poses.length, nanos[1]/1e6/poses.length, 100.0*differing/pixels[0].length,
+                          argbBytes/1e6, indexedBytes/1e6, quantized);
+    }
+}
@@ -0,0 +1,77 @@
+package de.rsh.rycst;
+
+import java.util.Arrays;
+
+import de.rsh.game.ParallelBands;
+
+/**
+ * column major scratch framebuffer of the wall pass: pixel (x,y) is at x*height + y, so a wall stripe is a run of
+ * consecutive ints instead of one int per image row. transposeInto copies the drawn pixels into the row major
+ * pixels of the scene image in BLOCK x BLOCK tiles, so both sides of the copy stay in the cache.
+ *
+ * 0 (transparent black) marks pixels nothing was drawn into, transposeInto skips them and the floor and ceiling
+ * already in the scene image show through. the wall pass draws opaque pixels only.
+ */
+final class ColumnBuffer {
+    static final int BLOCK = 32;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    ColumnBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width*height];
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int[] pixels() {
+        return pixels;
+    }
+
+    /**
+     * index of row 0 of column x
+     */
+    int offset(int x) {
+        return x*height;
+    }
+
+    /**
+     * marks the columns [from,to) as not drawn
+     */
+    void clear(int from, int to) {
+        Arrays.fill(pixels, from*height, to*height, 0);
+    }
+
+    /**
+     * copies the drawn pixels of the columns [0,w) and rows [0,h) into the row major dst, the row bands run on bands
+     * @param stride pixels per row of dst
+     */
+    void transposeInto(int[] dst, int stride, int w, int h, ParallelBands bands) {
+        var rows = Math.min(h, height);
+        var columns = Math.min(w, width);
+        bands.run(rows, (from, to) -> {
+            for(int y0=from; y0<to; y0+=BLOCK) {
+                var y1 = Math.min(y0 + BLOCK, to);
+                for(int x0=0; x0<columns; x0+=BLOCK) {
+                    var x1 = Math.min(x0 + BLOCK, columns);
+                    // reads run down a column, the BLOCK rows of dst written meanwhile stay in the cache
+                    for(int x=x0; x<x1; x++) {
+                        for(int y=y0, i=x*height + y0, j=y0*stride + x; y<y1; y++, i++, j+=stride) {
+                            var p = pixels[i];
+                            if(p != 0) dst[j] = p;
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
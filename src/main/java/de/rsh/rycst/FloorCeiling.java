@@ -0,0 +1,249 @@
+package de.rsh.rycst;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import de.rsh.game.ParallelBands;
+import de.rsh.game.Texture;
+import de.rsh.game.TextureAtlas;
+import de.rsh.graph.Vec2Arena;
+
+/**
+ * textured floor (XOR_GRAYSCALE) and ceiling (BLUE_GRAD) of the scene, darker towards the horizon.
+ *
+ * screen row y below the horizon shows the floor at depth h/y. the floor points of a row lie on the line from
+ * pos+dir-ncp+horz1*depth to pos+dir+ncp+horz2*depth (horz are the directions of the frustum edges), so the world
+ * position of pixel x is start + x*(end-start)/w: draw computes start and the step once per row and only adds
+ * per pixel. the ceiling row above the horizon mirrors the floor row and uses the same texture coordinates.
+ * a row has one brightness, y/(h/2), so it reads its texels from one light level of the shaded textures. with mipmaps
+ * it also has one mip level, from the texels between two neighbour pixels of the row or two rows, whichever is more.
+ * with indexed textures a texel is a palette index into the shaded palettes of the row.
+ *
+ * drawArena is the first version on Vec2Arena and get/setRGB, kept as the reference for draw.
+ *
+ * both can split the rows into bands (ParallelBands). a row only depends on y and the camera, the scanline version
+ * keeps its state in locals and drawArena gives every worker thread its own arena and hsb buffer, so the bands
+ * share nothing but the textures and the image rows they write are disjoint.
+ */
+final class FloorCeiling {
+    private static final int FLOOR = Texture.XOR_GRAYSCALE.id();
+    private static final int CEILING = Texture.BLUE_GRAD.id(); // same size as the floor texture
+
+    private final int textureWidth;
+    private final int textureHeight;
+    private final MipShades shades;
+
+    // reference version
+    private final BufferedImage texXorGray, texBlueGrad;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static final ParallelBands SERIAL = new ParallelBands(1);
+
+    FloorCeiling(int textureWidth, int textureHeight, int lightLevels) {
+        this(textureWidth, textureHeight, lightLevels, false);
+    }
+
+    /**
+     * @param mipmapped draw samples distant rows from the mipmaps of the textures
+     */
+    FloorCeiling(int textureWidth, int textureHeight, int lightLevels, boolean mipmapped) {
+        this(TextureAtlas.of(textureWidth, textureHeight), lightLevels, mipmapped);
+    }
+
+    private FloorCeiling(TextureAtlas atlas, int lightLevels, boolean mipmapped) {
+        this(new MipShades(atlas, lightLevels, mipmapped), new TextureImages(atlas));
+    }
+
+    /**
+     * floor and ceiling sampling the shaded atlas textures, shared with the other passes
+     */
+    FloorCeiling(MipShades shades, TextureImages images) {
+        this.shades = shades;
+        this.textureWidth = shades.width(0, FLOOR);
+        this.textureHeight = shades.height(0, FLOOR);
+        texXorGray = images.get(FLOOR);
+        texBlueGrad = images.get(CEILING);
+    }
+
+    /**
+     * draws floor and ceiling into the pixels of a w x h TYPE_INT_ARGB image, row by row
+     * @param stride pixels per image row
+     */
+    void draw(int[] pixels, int stride, int w, int h,
+              double posX, double posY, double dirX, double dirY, double planeX, double planeY) {
+        draw(pixels, stride, w, h, posX, posY, dirX, dirY, planeX, planeY, SERIAL);
+    }
+
+    /**
+     * same as draw, the rows below the horizon are split into bands. the band of floor row y also draws the mirrored
+     * ceiling row, so no two bands write the same pixels and the image is the same as the serial one
+     */
+    void draw(int[] pixels, int stride, int w, int h,
+              double posX, double posY, double dirX, double dirY, double planeX, double planeY, ParallelBands bands) {
+        var near1X = posX + dirX - planeX;
+        var near1Y = posY + dirY - planeY;
+        var near2X = posX + dirX + planeX;
+        var near2Y = posY + dirY + planeY;
+        var len1 = Math.sqrt((near1X - posX)*(near1X - posX) + (near1Y - posY)*(near1Y - posY));
+        var len2 = Math.sqrt((near2X - posX)*(near2X - posX) + (near2Y - posY)*(near2Y - posY));
+        var horz1X = (near1X - posX)/len1;
+        var horz1Y = (near1Y - posY)/len1;
+        var horz2X = (near2X - posX)/len2;
+        var horz2Y = (near2Y - posY)/len2;
+
+        var halfScreenH = h/2;
+        bands.run(Math.max(0, halfScreenH - 1), (from, to) -> {
+            for(int y=from + 1; y < to + 1; y++) {
+                var sampleDepth = (double)h/y;
+                var startX = near1X + horz1X*sampleDepth;
+                var startY = near1Y + horz1Y*sampleDepth;
+                var stepX = (near2X + horz2X*sampleDepth - startX)/w;
+                var stepY = (near2Y + horz2Y*sampleDepth - startY)/w;
+                // the next row is h/(y*(y+1)) further away
+                var footprint = Math.max(Math.sqrt(stepX*stepX + stepY*stepY), (double)h/((double)y*(y + 1)));
+                var level = shades.levelOf(footprint*Math.max(textureWidth, textureHeight));
+                var levelWidth = shades.width(level, FLOOR);
+                var levelHeight = shades.height(level, FLOOR);
+                var brightness = (double)y/halfScreenH;
+                var floorTexels = shades.shaded(level, FLOOR, brightness);
+                var ceilingTexels = shades.shaded(level, CEILING, brightness);
+                var floorRow = (y + halfScreenH)*stride;
+                var ceilingRow = (halfScreenH - y)*stride;
+                var sampleX = startX;
+                var sampleY = startY;
+                if(shades.indexed()) {
+                    var floorIndices = shades.indices(level, FLOOR);
+                    var ceilingIndices = shades.indices(level, CEILING);
+                    for(int x=0; x<w; x++) {
+                        var u = Math.min((int)((sampleX - Math.floor(sampleX))*levelWidth), levelWidth - 1);
+                        var v = Math.min((int)((sampleY - Math.floor(sampleY))*levelHeight), levelHeight - 1);
+                        var texel = u*levelHeight + v;
+                        pixels[floorRow + x] = floorTexels[floorIndices[texel] & 0xFF];
+                        pixels[ceilingRow + x] = ceilingTexels[ceilingIndices[texel] & 0xFF];
+                        sampleX += stepX;
+                        sampleY += stepY;
+                    }
+                    continue;
+                }
+                for(int x=0; x<w; x++) {
+                    var u = Math.min((int)((sampleX - Math.floor(sampleX))*levelWidth), levelWidth - 1);
+                    var v = Math.min((int)((sampleY - Math.floor(sampleY))*levelHeight), levelHeight - 1);
+                    var texel = u*levelHeight + v; // column major
+                    pixels[floorRow + x] = floorTexels[texel];
+                    pixels[ceilingRow + x] = ceilingTexels[texel];
+                    sampleX += stepX;
+                    sampleY += stepY;
+                }
+            }
+        });
+    }
+
+    void drawArena(BufferedImage sceneImg, double frustrumLen,
+                   double posX, double posY, double dirX, double dirY, double planeX, double planeY) {
+        drawArena(sceneImg, frustrumLen, posX, posY, dirX, dirY, planeX, planeY, SERIAL);
+    }
+
+    /**
+     * drawArena with the rows in bands, every band works in the arena and hsb buffer of its worker thread
+     */
+    void drawArena(BufferedImage sceneImg, double frustrumLen,
+                   double posX, double posY, double dirX, double dirY, double planeX, double planeY, ParallelBands bands) {
+        var w = sceneImg.getWidth();
+        var h = sceneImg.getHeight();
+
+        var a2 = scratch.get().arena(w);
+        a2.clear();
+        var pos = a2.c(posX, posY);
+        var dir = a2.c(dirX, dirY);
+        var ncp = a2.c(planeX, planeY);
+
+
+        //var near1 = pos.add(dir).sub(ncp);
+        var near1 = a2.sub(a2.add(pos, dir),ncp);
+        //var near2 = pos.add(dir).add(ncp);
+        var near2 = a2.add(a2.add(pos, dir),ncp);
+
+        //var far1 = near1.add(near1.sub(pos).normalized().scaled(frustrumLen));
+        var far1 = a2.add(near1, a2.scaled(a2.normalized(a2.sub(near1,pos)), frustrumLen));
+        //var far2 = near2.add(near2.sub(pos).normalized().scaled(frustrumLen));
+        var far2 = a2.add(near2, a2.scaled(a2.normalized(a2.sub(near2,pos)), frustrumLen));
+
+        //var horz1 = far1.sub(near1).normalized();
+        var horz1 = a2.normalized(a2.sub(far1,near1));
+        //var horz2 = far2.sub(near2).normalized();
+        var horz2 = a2.normalized(a2.sub(far2,near2));
+
+        // the calling thread can run a band too and clears its arena there, so the bands get plain doubles
+        double near1X = a2.x(near1), near1Y = a2.y(near1), near2X = a2.x(near2), near2Y = a2.y(near2);
+        double horz1X = a2.x(horz1), horz1Y = a2.y(horz1), horz2X = a2.x(horz2), horz2Y = a2.y(horz2);
+
+        var halfScreenH = h/2;
+        var dblHalfScreenH = (double)halfScreenH;
+        bands.run(Math.max(0, halfScreenH - 1), (from, to) -> {
+            var worker = scratch.get();
+            var a = worker.arena(w);
+            var hsbBuf = worker.hsbBuf;
+            a.clear();
+            var bandNear1 = a.c(near1X, near1Y);
+            var bandNear2 = a.c(near2X, near2Y);
+            var bandHorz1 = a.c(horz1X, horz1Y);
+            var bandHorz2 = a.c(horz2X, horz2Y);
+            var rowClearPoint = a.clearPoint();
+            for(int y=from + 1; y < to + 1; y+=1 ) {
+                a.clearFrom(rowClearPoint); // a row needs its start and end and a few vectors per pixel
+                double dblY = (double)y;
+                double sampleDepth = ((double)h)/dblY; // flipped because of perspective projection rules
+                var start = a.add(a.scaled(bandHorz1,sampleDepth),bandNear1);
+                var end = a.add(a.scaled(bandHorz2,sampleDepth),bandNear2);
+                for(int x=0; x<w; x+=1) {
+                    double sampleWidth = (double)x/((double)w);
+
+                    var sample = a.add(a.scaled(a.sub(end,start),sampleWidth),start);
+                    var sampleGridPart = a.sub(sample,a.floor(sample));
+                    var sampleTextureCoords = a.mul(sampleGridPart, a.c(textureWidth,textureHeight));
+                    var rgb_raw = texXorGray.getRGB((int)a.x(sampleTextureCoords), (int)a.y(sampleTextureCoords));
+                    Color.RGBtoHSB((rgb_raw>>16)&0xFF, (rgb_raw>>8)&0xFF, (rgb_raw>>0)&0xFF, hsbBuf);
+                    var distanceMakeDarkerFactor = (dblY)/(dblHalfScreenH);
+                    hsbBuf[2] *= distanceMakeDarkerFactor;
+                    var rgb = Color.HSBtoRGB(hsbBuf[0], hsbBuf[1], hsbBuf[2]);
+                    try {
+                            sceneImg.setRGB(x,y+halfScreenH, rgb);
+                    } catch (Exception e) {
+                        System.err.printf("scene.w:%d, scene.h:%d, width:%d, height:%d, x:%d, y:%d\n", sceneImg.getWidth(), sceneImg.getHeight(), w,h,x,y+h/2);
+                    }
+
+                    rgb_raw = texBlueGrad.getRGB((int)a.x(sampleTextureCoords), (int)a.y(sampleTextureCoords));
+                    Color.RGBtoHSB((rgb_raw>>16)&0xFF, (rgb_raw>>8)&0xFF, (rgb_raw>>0)&0xFF, hsbBuf);
+                    hsbBuf[2] *= distanceMakeDarkerFactor;
+                    rgb = Color.HSBtoRGB(hsbBuf[0], hsbBuf[1], hsbBuf[2]);
+                    try {
+                        sceneImg.setRGB(x,h/2-y, rgb);
+                    } catch (Exception e) {
+                        System.err.printf("scene.w:%d, scene.h:%d, width:%d, height:%d, x:%d, y:%d\n", sceneImg.getWidth(), sceneImg.getHeight(), w,h,x,y+h/2);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * per thread scratch of drawArena: an arena for the vectors of one row and the hsb buffer
+     */
+    private static final class Scratch {
+        private static final int VECTORS_PER_PIXEL = 8; // sub, scaled, add, floor, sub, c, mul of the pixel loop
+        private final float[] hsbBuf = new float[3];
+        private Vec2Arena arena;
+        private int width = -1;
+
+        /**
+         * arena big enough for a row of width pixels
+         */
+        Vec2Arena arena(int width) {
+            if(width > this.width) {
+                arena = new Vec2Arena(VECTORS_PER_PIXEL*width + 64);
+                this.width = width;
+            }
+            return arena;
+        }
+    }
+}
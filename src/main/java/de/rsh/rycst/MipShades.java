@@ -0,0 +1,161 @@
+package de.rsh.rycst;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.rsh.game.IndexedTexture;
+import de.rsh.game.MipMap;
+import de.rsh.game.ShadeTable;
+import de.rsh.game.TextureAtlas;
+
+/**
+ * light levels of every mip level of the textures of an atlas: the samplers pick the mip level by the texels a pixel
+ * covers and the light level by the brightness, then index the shaded texels of the texture, column major, with the
+ * level 0 coordinates shifted right by the mip level. without mipmaps there is only level 0 and the lookups are the
+ * ones of a plain ShadeTable over the texture.
+ *
+ * indexed: the textures are IndexedTextures, one byte per texel, and only their palettes are shaded. a sampler reads
+ * the index of the texel from indices(level, id) and its colour from shaded(level, id, brightness). the shaded
+ * palettes of a light level are 256 ints instead of a copy of the texture.
+ *
+ * a texture is prepared when it is sampled the first time (mip levels, palettes, shade tables), so the start and the
+ * heap do not grow with the textures of an atlas that are never shown. textures of an asset pack come indexed, with
+ * their mip levels, only their palettes are shaded. the argb mip levels are dropped once they are
+ * shaded or indexed. the walls and the floor share one instance, so every texture is prepared once.
+ */
+final class MipShades {
+    private final TextureAtlas atlas; // level 0 of the textures
+    private final int lightLevels;
+    private final boolean mipmapped;
+    private final boolean indexed;
+    private final int levels; // mip levels of the longest chain
+    private final AtomicReferenceArray<Levels> textures; // prepared textures, null until the first use
+
+    /**
+     * the shaded mip levels of one texture, the palette indices of the levels when indexed
+     */
+    private record Levels(ShadeTable[] shades, byte[][] indices) {}
+
+    MipShades(TextureAtlas atlas, int lightLevels, boolean mipmapped) {
+        this(atlas, lightLevels, mipmapped, false);
+    }
+
+    /**
+     * @param mipmapped the texture sizes must be powers of two
+     * @param indexed palette indexed textures with shaded palettes
+     */
+    MipShades(TextureAtlas atlas, int lightLevels, boolean mipmapped, boolean indexed) {
+        if(lightLevels < 1) throw new IllegalArgumentException("at least one light level needed, got " + lightLevels);
+        this.atlas = atlas;
+        this.lightLevels = lightLevels;
+        this.mipmapped = mipmapped;
+        this.indexed = indexed;
+        var levels = 1;
+        for(int id=0; id<atlas.count(); id++) {
+            if(mipmapped && (Integer.bitCount(atlas.width(id)) != 1 || Integer.bitCount(atlas.height(id)) != 1)) {
+                throw new IllegalArgumentException(String.format("mipmaps need power of two sizes, got %dx%d",
+                                                                 atlas.width(id), atlas.height(id)));
+            }
+            levels = Math.max(levels, chainLevels(id));
+        }
+        this.levels = levels;
+        this.textures = new AtomicReferenceArray<>(atlas.count());
+    }
+
+    boolean indexed() {
+        return indexed;
+    }
+
+    int lightLevels() {
+        return lightLevels;
+    }
+
+    /**
+     * number of textures, the ids are 0 ... count()-1
+     */
+    int count() {
+        return atlas.count();
+    }
+
+    /**
+     * width of texture id at mip level, a texture with a shorter chain than the others repeats its last level
+     */
+    int width(int level, int id) {
+        return Math.max(1, atlas.width(id) >> Math.min(level, chainLevels(id) - 1));
+    }
+
+    /**
+     * texels per column of texture id at mip level
+     */
+    int height(int level, int id) {
+        return Math.max(1, atlas.height(id) >> Math.min(level, chainLevels(id) - 1));
+    }
+
+    /**
+     * mip level to sample when a pixel covers texelsPerPixel texels of level 0, always 0 without mipmaps
+     */
+    int levelOf(double texelsPerPixel) {
+        return MipMap.levelOf(texelsPerPixel, levels);
+    }
+
+    /**
+     * palette indices of texture id at mip level, column major, only when indexed. a heap copy, the samplers read
+     * arrays faster than buffers
+     */
+    byte[] indices(int level, int id) {
+        var indices = levels(id).indices();
+        return indices[Math.min(level, indices.length - 1)];
+    }
+
+    /**
+     * the texels of texture id at mip level and the light level nearest to brightness, column major. when indexed
+     * the shaded palette
+     */
+    int[] shaded(int level, int id, double brightness) {
+        var shades = levels(id).shades();
+        return shades[Math.min(level, shades.length - 1)].shaded(brightness);
+    }
+
+    private int chainLevels(int id) {
+        if(!mipmapped) return 1;
+        return 1 + Math.max(Integer.numberOfTrailingZeros(atlas.width(id)), Integer.numberOfTrailingZeros(atlas.height(id)));
+    }
+
+    private Levels levels(int id) {
+        var levels = textures.get(id);
+        return levels != null ? levels : prepare(id);
+    }
+
+    /**
+     * shades the mip levels of texture id, once: the bands sampling the same new texture wait for the first one
+     */
+    private synchronized Levels prepare(int id) {
+        var levels = textures.get(id);
+        if(levels != null) return levels;
+        var count = chainLevels(id);
+        var shades = new ShadeTable[count];
+        var indices = indexed ? new byte[count][] : null;
+        var stored = atlas.indexed(id).filter(packed -> indexed && packed.length >= count);
+        var chain = mipmapped && stored.isEmpty() ? atlas.mipMap(id) : null;
+        for(int level=0; level<count; level++) {
+            int[] texels = null;
+            if(stored.isEmpty() && chain != null) {
+                texels = chain.level(level);
+            } else if(stored.isEmpty()) {
+                texels = new int[atlas.width(id)*atlas.height(id)];
+                atlas.texels(id).get(0, texels);
+            }
+            if(!indexed) {
+                shades[level] = new ShadeTable(texels, lightLevels);
+                continue;
+            }
+            // the levels of pack textures were indexed by the asset packer, only the palette is shaded
+            var texture = stored.isPresent() ? stored.get()[level] : IndexedTexture.of(width(level, id), height(level, id), texels);
+            shades[level] = new ShadeTable(texture.palette(), lightLevels);
+            indices[level] = new byte[texture.indices().remaining()];
+            texture.indices().get(0, indices[level]);
+        }
+        levels = new Levels(shades, indices);
+        textures.set(id, levels);
+        return levels;
+    }
+}
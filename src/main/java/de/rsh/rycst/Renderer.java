@@ -0,0 +1,483 @@
+package de.rsh.rycst;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import de.rsh.game.AssetPack;
+import de.rsh.game.InterlacedCaster;
+import de.rsh.game.ParallelBands;
+import de.rsh.game.PotentiallyVisibleSet;
+import de.rsh.game.RayCaster;
+import de.rsh.game.RayHit;
+import de.rsh.game.RayHitBuffer;
+import de.rsh.game.Texture;
+import de.rsh.game.TextureAtlas;
+import de.rsh.graph.Vec2Arena;
+import de.rsh.graph.Vec2d;
+import de.rsh.rycst.game.GameState;
+import de.rsh.rycst.game.Sprite;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * renders full frames of a GameState (floor and ceiling, walls, sprite, mini map) into a TYPE_INT_ARGB image or a
+ * plain int[] of ARGB pixels, no swing needed: runs with java.awt.headless=true, App is one client, Benchmark and the
+ * tests are others.
+ *
+ * the frame size is the size of the target, the renderer keeps its per size state (hit buffer, column buffer,
+ * Graphics2D of the target) and rebuilds it when it gets a target of another size. a renderer is not thread safe,
+ * one thread renders at a time (the passes use their own worker threads, see rycst.renderThreads).
+ *
+ * the passes are configured with the rycst.* system properties (see README).
+ */
+public final class Renderer {
+    private final GameState gameState;
+    private final Vec2Arena a1 = new Vec2Arena(100); // sprites arena
+    // allocation free ray casting in the wall pass, switch back to the Vec2d version with -Drycst.primitiveRayCast=false
+    private final boolean primitiveRayCast = Boolean.parseBoolean(System.getProperty("rycst.primitiveRayCast", "true"));
+    // walls with lodev's DDA instead of drawGameField3D_rsh (-Drycst.lodevWalls=true) and the engine doing its stepping
+    // (-Drycst.engine=PACKET needs --add-modules jdk.incubator.vector)
+    private final boolean lodevWalls = Boolean.getBoolean("rycst.lodevWalls");
+    private final boolean spaceSkipping = Boolean.getBoolean("rycst.spaceSkipping"); // lodev walls jump over empty space, overrides rycst.engine
+    private final RayCaster.Engine engine = selectEngine(System.getProperty("rycst.engine", RayCaster.Engine.SCALAR.name()));
+    // wall columns are cast in bands on this many threads (-Drycst.renderThreads=n, 1 casts on the rendering thread)
+    private final ParallelBands bands = new ParallelBands(Integer.getInteger("rycst.renderThreads", Runtime.getRuntime().availableProcessors()));
+    // the textured walls cast every n-th column per frame and reproject the others from the last frame (-Drycst.interlace=n, 1 casts all)
+    private final InterlacedCaster interlaced = new InterlacedCaster(Integer.getInteger("rycst.interlace", 1));
+    private static final int MINIMAP_CELLS = 64; // the mini map shows at most this many cells around the camera
+    // sprites outside the potentially visible set of the camera cell are skipped, the sets are cached in ~/.cache/rycst (-Drycst.pvs=true)
+    private final boolean pvsCulling = Boolean.getBoolean("rycst.pvs");
+    private Optional<PotentiallyVisibleSet> pvs; // of the map at pvsMapVersion, dropped when the map changes
+    private final long pvsMapVersion;
+    // textured walls are written straight into the target pixels, -Drycst.directWalls=false draws them with Graphics2D.drawImage
+    private final boolean directWalls = Boolean.parseBoolean(System.getProperty("rycst.directWalls", "true"));
+    // direct walls go through a column major buffer first and are transposed into the target (-Drycst.columnMajorWalls=true)
+    private final boolean columnMajorWalls = Boolean.getBoolean("rycst.columnMajorWalls");
+    // light levels of the distance fog on floor, ceiling and the direct walls, 1 turns the fog off (-Drycst.lightLevels=n)
+    private final int lightLevels = Integer.getInteger("rycst.lightLevels", 64);
+    // distant walls, floor and ceiling rows sample smaller mip levels of the textures (-Drycst.mipmaps=false)
+    private final boolean mipmaps = Boolean.parseBoolean(System.getProperty("rycst.mipmaps", "true"));
+    // walls and floor sample 8 bit palette indexed textures, the light levels shade only the palettes (-Drycst.indexedTextures=false)
+    private final boolean indexedTextures = Boolean.parseBoolean(System.getProperty("rycst.indexedTextures", "true"));
+    // textures of an asset pack (see AssetPacker) replace the built in textures of the same name, the others are walls
+    // of the materials WorldMap.TEXTURED + atlas id (-Drycst.assetPack=file)
+    private final Optional<String> assetPack = Optional.ofNullable(System.getProperty("rycst.assetPack"));
+    private final WallStripes wallStripes;
+    // floor and ceiling stepped per row into the target pixels, -Drycst.scanlineFloor=false uses the Vec2Arena version
+    private final boolean scanlineFloor = Boolean.parseBoolean(System.getProperty("rycst.scanlineFloor", "true"));
+    private final FloorCeiling floorCeiling;
+    // floor and ceiling rows are drawn in bands on this many threads, shares the wall pool when the counts match (-Drycst.floorThreads=n)
+    private final ParallelBands floorBands = floorBands(Integer.getInteger("rycst.floorThreads", bands.threads()));
+    private final double frustrumLen = Math.sqrt(WorldMap.mapHeight*WorldMap.mapHeight + WorldMap.mapWidth*WorldMap.mapWidth); // the diagonal
+
+    private final TextureImages textureImages; // sprite and mini map
+    private final Sprite<Integer> sprite;
+
+    // state of the current target, rebuilt when the target changes
+    private BufferedImage target;
+    private Graphics2D graphics;
+    private int[] pixels;
+    private int width, height;
+    private ColumnBuffer wallColumns;
+    private RayHitBuffer hitBuffer; // cast result per screen column (perpDist is the zBuffer)
+    private BufferedImage wrapped; // the last int[] target as image
+
+    public Renderer(GameState gameState, int textureWidth, int textureHeight) {
+        this.gameState = gameState;
+        // every pass samples the one atlas, a texture is shaded once for walls and floor when it is drawn the first time
+        var atlas = assetPack.map(f -> {
+                                  try(var pack = AssetPack.open(Path.of(f))) {
+                                      return TextureAtlas.of(textureWidth, textureHeight, pack); // the mapped texels outlive the pack
+                                  }
+                              })
+                             .orElseGet(() -> TextureAtlas.of(textureWidth, textureHeight));
+        var shades = new MipShades(atlas, lightLevels, mipmaps, indexedTextures);
+        textureImages = new TextureImages(atlas);
+        wallStripes = new WallStripes(shades, textureImages);
+        floorCeiling = new FloorCeiling(shades, textureImages);
+        sprite = new Sprite<Integer>(a1.c(6.5, 16.5), textureImages.get(Texture.GREEN_OVAL.id()));
+        pvs = !pvsCulling ? Optional.empty()
+                          : gameState.occupancy()
+                                     .filter(o -> PotentiallyVisibleSet.isSupported(o.width(), o.height()))
+                                     .map(o -> PotentiallyVisibleSet.cached(PotentiallyVisibleSet.cacheDir(),
+                                                                            o.width(), o.height(), o, bands));
+        pvsMapVersion = gameState.mapVersion();
+    }
+
+    public GameState gameState() {
+        return gameState;
+    }
+
+    /**
+     * cast results of the last frame, one column per pixel column of the target
+     */
+    public Optional<RayHitBuffer> hitBuffer() {
+        return Optional.ofNullable(hitBuffer);
+    }
+
+    /**
+     * the caster of the textured walls, counts the rays saved by rycst.interlace
+     */
+    public InterlacedCaster interlacedCaster() {
+        return interlaced;
+    }
+
+    /**
+     * renders a frame into the pixels of a width x height ARGB image, row major without padding
+     */
+    public void render(int[] pixels, int width, int height) {
+        if(pixels.length < width*height) throw new IllegalArgumentException(String.format("%d pixels for a %dx%d frame", pixels.length, width, height));
+        if(wrapped == null || wrapped.getWidth() != width || wrapped.getHeight() != height
+           || ((DataBufferInt)wrapped.getRaster().getDataBuffer()).getData() != pixels) {
+            var argb = new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000);
+            var raster = Raster.createPackedRaster(new DataBufferInt(pixels, width*height), width, height, width, argb.getMasks(), null);
+            wrapped = new BufferedImage(argb, raster, false, null);
+        }
+        render(wrapped);
+    }
+
+    /**
+     * renders a frame into image
+     * @param image a TYPE_INT_ARGB image
+     */
+    public void render(BufferedImage image) {
+        if(image.getType() != BufferedImage.TYPE_INT_ARGB) throw new IllegalArgumentException("TYPE_INT_ARGB image needed, got type " + image.getType());
+        bind(image);
+        var g = graphics;
+        g.setColor(new Color(0xff,0xff,0xff,255));
+        drawFloor(g);
+        if(lodevWalls) {
+            drawGameField3D(g);
+        } else {
+            drawGameField3D_rsh(g);
+        }
+        drawSprite(g);
+        drawGameFieldMiniMap(g, new Color(0xbb,0xbb,0xbb,0x55), 1, 1, 0.3, Optional.of(hitBuffer));
+    }
+
+    private void bind(BufferedImage image) {
+        if(image == target) return;
+        if(graphics != null) graphics.dispose();
+        target = image;
+        width = image.getWidth();
+        height = image.getHeight();
+        pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        if(columnMajorWalls && (wallColumns == null || wallColumns.width() != width || wallColumns.height() != height)) {
+            wallColumns = new ColumnBuffer(width, height);
+        }
+        if(hitBuffer == null) {
+            hitBuffer = new RayHitBuffer(width);
+        } else {
+            hitBuffer.resize(width);
+        }
+    }
+
+    private Color worldFieldToColor(int field) {
+        return WallStripes.fieldColor(field);
+    }
+
+    private static RayCaster.Engine selectEngine(String name) {
+        var engine = RayCaster.Engine.valueOf(name);
+        if(engine == RayCaster.Engine.PACKET && !RayCaster.isPacketEngineAvailable()) {
+            System.err.println("jdk.incubator.vector not available (--add-modules jdk.incubator.vector), using the scalar engine");
+            engine = RayCaster.Engine.SCALAR;
+        }
+        return engine;
+    }
+
+    // I leave the lodev implementation as a reference and best practices
+    private void drawGameField3D(Graphics2D g) {
+        var width = Math.min(this.width, hitBuffer.columns());
+        var height = this.height;
+        if(spaceSkipping && gameState.distanceField().isPresent()) {
+            RayCaster.castColumns_lodev(gameState.distanceField().get(), width,
+                                        gameState.posX(), gameState.posY(),
+                                        gameState.dirX(), gameState.dirY(),
+                                        gameState.ncpX(), gameState.ncpY(),
+                                        hitBuffer, bands);
+        } else {
+            RayCaster.castColumns_lodev(engine, width,
+                                        gameState.posX(), gameState.posY(),
+                                        gameState.dirX(), gameState.dirY(),
+                                        gameState.ncpX(), gameState.ncpY(),
+                                        //(mapX, mapY) -> (rayCastState.map[mapY][mapX] != WorldMap.SPACE),
+                                        //(mapX, mapY) -> (gameState.map(mapX,mapY) != WorldMap.SPACE),
+                                        gameState.hitTest(),
+                                        hitBuffer, bands);
+        }
+        for(int x = 0; x < width; x++) {
+            //Calculate height of line to draw on screen
+            int lineHeight = (int)(height / hitBuffer.perpDist(x));
+
+            //calculate lowest and highest pixel to fill in current stripe
+            int drawStart = -lineHeight / 2 + height / 2;
+            if(drawStart < 0) drawStart = 0;
+            int drawEnd = lineHeight / 2 + height / 2;
+            if(drawEnd >= height) drawEnd = height - 1;
+
+            //choose wall color
+            Color color = worldFieldToColor(gameState.map(hitBuffer.cellX(x), hitBuffer.cellY(x)));
+
+            //give x and y sides different brightness
+            if(hitBuffer.side(x) == RayHit.HOR) {color = color.darker();}
+
+            //draw the pixels of the stripe as a vertical line
+            g.setColor(color);
+            g.drawLine(x, drawStart, x, drawEnd);
+        }
+    }
+
+    private void drawGameFieldMiniMap(Graphics2D g, final Color backColor, final int posX, final int posY, final double scale, Optional<RayHitBuffer> trace) {
+        final var saveColor = g.getColor();
+        //final var map = gameState.map;
+        final var w = scale*width;
+        final var h = scale*height;
+        // window of the map around the camera, the whole map for small maps
+        final var cellsX = Math.min(gameState.mapWidth(), MINIMAP_CELLS);
+        final var cellsY = Math.min(gameState.mapHeight(), MINIMAP_CELLS);
+        final var originX = Math.clamp((int)gameState.posX() - cellsX/2, 0, gameState.mapWidth() - cellsX);
+        final var originY = Math.clamp((int)gameState.posY() - cellsY/2, 0, gameState.mapHeight() - cellsY);
+        final var fieldHeight = h/cellsY;
+        final var fieldWidth = w/cellsX;
+        g.setColor(backColor);
+
+        // Background
+        g.fillRect(posX, posY, (int)(posX+w), (int)(posY + h));
+
+        // world
+        for(int y=0; y<cellsY; y++) {
+            for(int x= 0; x<cellsX; x++) {
+                final var field = gameState.map(originX + x, originY + y);
+                final var fieldUpperX = (int)(posX + x*fieldWidth);
+                final var fieldUpperY = (int)(posY + y*fieldHeight);
+                switch (field) {
+                    case WorldMap.SPACE:
+                        // leave transparent
+                        break;
+                    case WorldMap.OUTERWALL:
+                    {
+                        g.drawImage(textureImages.get(Texture.HORIZ_BLUE.id()), fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
+                    }
+                    break;
+                    case WorldMap.PILAR:
+                    {
+
+                        g.drawImage(textureImages.get(Texture.VERT_YELLO.id()), fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
+                    }
+                    break;
+                    case WorldMap.HOUSEWALL:
+                    {
+
+                        g.drawImage(textureImages.get(Texture.RED_BRICKS.id()), fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
+                    }
+                    break;
+                    case WorldMap.COTTAGEWALL:
+                    {
+
+                        g.drawImage(textureImages.get(Texture.RED_WITH_BLACK_CROSS.id()), fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
+                    }
+                    break;
+
+                    default:
+                        final var textured = wallStripes.texturedId(field);
+                        if(textured >= 0) {
+                            g.drawImage(textureImages.get(textured), fieldUpperX,fieldUpperY, (int)fieldWidth, (int)fieldHeight, null);
+                            break;
+                        }
+                        final Color color = worldFieldToColor(field);
+                        g.setColor(color);
+                        g.fillRect(fieldUpperX, fieldUpperY, (int)fieldWidth, (int)fieldHeight);
+                        break;
+                }
+            }
+        }
+
+        // player / camera
+        g.setColor(Color.BLACK);
+        var cameraR = (Math.min(fieldHeight, fieldWidth)*0.7);
+        var cameraX = (posX + fieldWidth*(gameState.posX() - originX) - cameraR/2.0);
+        var cameraY = (posY + fieldHeight*(gameState.posY() - originY) - cameraR/2.0);
+        g.fillOval((int)cameraX, (int)cameraY, (int)cameraR, (int)cameraR);
+
+        // ray
+        var rayFromX = (posX + fieldWidth*(gameState.posX() - originX));
+        var rayFromY = (posY + fieldHeight*(gameState.posY() - originY));
+        var rayToX = (rayFromX + fieldWidth*gameState.dirX());
+        var rayToY = (rayFromY + fieldWidth*gameState.dirY());
+        g.drawLine((int)rayFromX, (int)rayFromY, (int)rayToX, (int)rayToY);
+
+        // frustrum
+        var frustrumFromX = rayToX - fieldWidth*gameState.ncpX();
+        var frustrumFromY = rayToY - fieldWidth*gameState.ncpY();
+        var frustrumToX = rayToX + fieldWidth*gameState.ncpX();
+        var frustrumToY = rayToY + fieldWidth*gameState.ncpY();
+        g.drawLine((int)frustrumFromX, (int)frustrumFromY, (int)frustrumToX, (int)frustrumToY);
+        g.drawLine((int)rayFromX, (int)rayFromY, (int)frustrumFromX, (int)frustrumFromY);
+        g.drawLine((int)rayFromX, (int)rayFromY, (int)frustrumToX, (int)frustrumToY);
+
+        // trace
+        g.setColor(Color.LIGHT_GRAY);
+        trace.ifPresent(tr -> {
+            for(int x=0; x<tr.columns(); x++) {
+                if(!tr.isHit(x)) continue;
+                var toX = fieldWidth*(tr.hitX(x) - originX);
+                var toY = fieldHeight*(tr.hitY(x) - originY);
+                g.drawLine((int)rayFromX, (int)rayFromY,(int)toX, (int)toY);
+            }
+        });
+
+        // reset color
+        g.setColor(saveColor);
+    }
+
+
+    private void drawGameField3D_rsh(Graphics2D g) {
+//        var map = gameState.map;
+
+        double posX   = gameState.posX(), posY   = gameState.posY();  //x and y start position
+        double dirX   = gameState.dirX(), dirY   = gameState.dirY(); //idirection vector
+        double planeX = gameState.ncpX(), planeY = gameState.ncpY(); //the 2d raycaster version of camera plane
+
+        //double time = 0; //time of current frame
+        //double oldTime = 0; //time of previous frame
+        var width = Math.min(this.width, hitBuffer.columns());
+        var w = (double)width;
+        var h = (double)height;
+
+        if(primitiveRayCast && interlaced.factor() > 1) {
+            interlaced.castColumns(gameState, width, hitBuffer, bands);
+        } else if(primitiveRayCast) {
+            RayCaster.castColumns(gameState, width, hitBuffer, bands);
+        } else {
+            var pos = new Vec2d(posX, posY);
+            var dir = new Vec2d(dirX, dirY);
+            var ncp = new Vec2d(planeX, planeY);
+            var ncpFrom = pos.add(dir).sub(ncp);
+            var ncpTo = pos.add(dir).add(ncp);
+            var ncpDir = ncpTo.sub(ncpFrom);
+            var ncpLen = ncpDir.len();
+            var ncpStrideDist = ncpLen / (double)w;
+            var ncpStride = ncpDir.scaled(ncpStrideDist);
+
+            hitBuffer.resize(width);
+            var ncpTraverser = ncpFrom;
+            // TODO: having a texture with the width of tw only tw stripes have to be drawn
+            for(int x=0; x<width; x++) {
+                var rayDir = ncpTraverser.sub(pos).normalized();
+                //var maybeCastRes = rc.rayCastToGrid(pos, rayDir, (c) -> (map[c.snd()][c.fst()] != WorldMap.SPACE));
+                var maybeCastRes = RayCaster.rayCastUntilHit(pos, rayDir,
+                                                             gameState.mapWidth(), gameState.mapHeight(),
+                                                             //(c) -> (map[c.snd()][c.fst()] != WorldMap.SPACE));
+                                                             (c) -> gameState.isSpace(c.fst(), c.snd()));
+                if(maybeCastRes.isPresent()) {
+                    var castRes  = maybeCastRes.get();
+                    var castPos  = castRes.fst();
+                    var castSide = castRes.snd();
+                    var castCell = castRes.thr();
+
+                    // now I need the perpedicular distance between castPos and the camera plane
+                    double perpDist = castPos.perpDistToLine(pos, ncp);
+                    //var dist = castPos.sub(pos).len(); <- will give fisheye effect
+                    hitBuffer.set(x, castPos.x(), castPos.y(), castSide.ordinal(), castCell.fst(), castCell.snd(), perpDist);
+                } else {
+                    hitBuffer.miss(x);
+                }
+
+                ncpTraverser = ncpTraverser.add(ncpStride);
+            }
+        }
+
+        if(directWalls && columnMajorWalls) {
+            var columns = wallColumns;
+            var height = this.height;
+            bands.run(width, (from, to) -> {
+                columns.clear(from, to);
+                for(int x=from; x<to; x++) {
+                    if(hitBuffer.isHit(x)) {
+                        wallStripes.draw(columns, x, height, gameState.map(hitBuffer.cellX(x), hitBuffer.cellY(x)), hitBuffer);
+                    }
+                }
+            });
+            columns.transposeInto(pixels, this.width, width, height, bands);
+        } else if(directWalls) {
+            // every column only writes its own pixels, so the columns can be drawn in bands
+            var pixels = this.pixels;
+            var stride = this.width;
+            var height = this.height;
+            bands.run(width, (from, to) -> {
+                for(int x=from; x<to; x++) {
+                    if(hitBuffer.isHit(x)) {
+                        wallStripes.draw(pixels, stride, x, height, gameState.map(hitBuffer.cellX(x), hitBuffer.cellY(x)), hitBuffer);
+                    }
+                }
+            });
+        } else {
+            // Graphics2D is not thread safe, drawing stays on this thread
+            for(int x=0; x<width; x++) {
+                if(hitBuffer.isHit(x)) {
+                    wallStripes.draw(g, x, h, gameState.map(hitBuffer.cellX(x), hitBuffer.cellY(x)), hitBuffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * heuristics for rgba coded greenesh intensity value
+     * @param intensity signed double -1 to 1
+     * @return
+     */
+    private int rgbaCodedIntensity(int intensity) {
+    var intensity_ = Math.clamp(intensity, -1, 1);
+    int alpha = (int)(Math.floor(128 * Math.abs(intensity_ + 1))) - 1 ; // 0..255
+    int R = intensity_ < 0 ? 0 : 255;
+    int G = R;
+    int B = intensity_ > 0 ? 0 : 255;
+    return  R<<32 | G << 16 | B << 8 | alpha;
+    }
+
+    private ParallelBands floorBands(int threads) {
+        return Math.max(1, threads) == bands.threads() ? bands : new ParallelBands(threads);
+    }
+
+    private void drawFloor(Graphics2D g) {
+        if(scanlineFloor) {
+            floorCeiling.draw(pixels, width, width, height,
+                              gameState.posX(), gameState.posY(),
+                              gameState.dirX(), gameState.dirY(),
+                              gameState.ncpX(), gameState.ncpY(), floorBands);
+        } else {
+            floorCeiling.drawArena(target, frustrumLen,
+                                   gameState.posX(), gameState.posY(),
+                                   gameState.dirX(), gameState.dirY(),
+                                   gameState.ncpX(), gameState.ncpY(), floorBands);
+        }
+    }
+
+    private void drawSprite(Graphics2D g) {
+       if(pvs.isPresent() && gameState.mapVersion() != pvsMapVersion) {
+           pvs = Optional.empty(); // computing new sets would stall the frame, the sprites are drawn without culling
+       }
+       var visible = pvs.map(p -> p.visible((int)gameState.posX(), (int)gameState.posY(),
+                                            (int)a1.x(sprite.getPos()), (int)a1.y(sprite.getPos())));
+       if(!visible.orElse(true)) return;
+       int clearPoint = a1.clearPoint();
+       int pos = a1.c(gameState.posX(), gameState.posY());
+       int dir = a1.c(gameState.dirX(), gameState.dirY());
+       int ncp = a1.c(gameState.ncpX(), gameState.ncpY());
+       double perpDist = a1.perpDistToLine(sprite.getPos(), pos, ncp);
+
+       int cameraToSprite = a1.sub(sprite.getPos(), pos);
+
+
+       a1.clearFrom(clearPoint); // all vecors genrated in this methods are local temporary
+    }
+}
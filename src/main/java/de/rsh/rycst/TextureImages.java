@@ -0,0 +1,28 @@
+package de.rsh.rycst;
+
+import java.awt.image.BufferedImage;
+
+import de.rsh.game.TextureAtlas;
+
+/**
+ * the textures of an atlas as BufferedImages for the Graphics2D.drawImage passes (mini map, sprite, drawImage walls),
+ * created on first use and shared by the passes. used by the rendering thread only.
+ */
+final class TextureImages {
+    private final TextureAtlas atlas;
+    private final BufferedImage[] images;
+
+    TextureImages(TextureAtlas atlas) {
+        this.atlas = atlas;
+        this.images = new BufferedImage[atlas.count()];
+    }
+
+    BufferedImage get(int id) {
+        if(images[id] == null) {
+            var img = new BufferedImage(atlas.width(id), atlas.height(id), BufferedImage.TYPE_INT_RGB);
+            img.setRGB(0, 0, atlas.width(id), atlas.height(id), atlas.rowMajor(id), 0, atlas.width(id));
+            images[id] = img;
+        }
+        return images[id];
+    }
+}
@@ -0,0 +1,286 @@
+package de.rsh.rycst;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import de.rsh.game.RayHit;
+import de.rsh.game.RayHitBuffer;
+import de.rsh.game.ShadeTable;
+import de.rsh.game.Texture;
+import de.rsh.game.TextureAtlas;
+import de.rsh.rycst.game.WorldMap;
+import de.rsh.utils.MathUtils;
+
+/**
+ * textured wall stripes of the rsh wall pass, one screen column per hit of a RayHitBuffer.
+ * two ways to draw the same stripe: through Graphics2D.drawImage (scales a 1 pixel wide part of the texture) or
+ * straight into the int[] of a TYPE_INT_ARGB image, stepping the texture row per pixel. the direct version only
+ * writes the pixels of column x, so columns can be drawn concurrently. it can also write into a ColumnBuffer, where
+ * the rows of a column are contiguous.
+ *
+ * the texture mapping of both is the same, including the per material quirks: PILAR and OUTERWALL squeeze the
+ * whole texture into the clipped stripe, HOUSEWALL and COTTAGEWALL clip the texture too, COTTAGEWALL rounds the
+ * stripe ends. materials from WorldMap.TEXTURED on show the atlas texture material - TEXTURED mapped like OUTERWALL.
+ * drawImage filters with the interpolation hint of g, the direct version takes the nearest texel.
+ *
+ * the direct version also fogs the walls: brightness min(1, 1/perpDist), the brightness of the floor row at the foot
+ * of the wall, taken from the shaded atlas. with one light level there is no fog and both versions match.
+ * the texels come from the column major textures shaded by MipShades, shared with the other passes, a stripe reads one
+ * texture column.
+ * with mipmaps the direct version samples stripes further away than the texture is high from a smaller mip level.
+ */
+final class WallStripes {
+    private static final int PILAR_TEXTURE = Texture.VERT_YELLO.id();
+    private static final int OUTERWALL_TEXTURE = Texture.HORIZ_BLUE.id();
+    private static final int HOUSEWALL_TEXTURE = Texture.RED_BRICKS.id();
+    private static final int COTTAGEWALL_TEXTURE = Texture.TEST1.id();
+
+    private final MipShades shades;
+    private final TextureImages images;
+    private final int lightLevels;
+    private final int textureWidth; // of all wall textures, the atlas textures of TEXTURED materials too
+    private final int textureHeight;
+
+    WallStripes(int textureWidth, int textureHeight, int lightLevels) {
+        this(textureWidth, textureHeight, lightLevels, false);
+    }
+
+    /**
+     * @param mipmapped the direct version samples distant stripes from the mipmaps of the textures
+     */
+    WallStripes(int textureWidth, int textureHeight, int lightLevels, boolean mipmapped) {
+        this(TextureAtlas.of(textureWidth, textureHeight), lightLevels, mipmapped);
+    }
+
+    private WallStripes(TextureAtlas atlas, int lightLevels, boolean mipmapped) {
+        this(new MipShades(atlas, lightLevels, mipmapped), new TextureImages(atlas));
+    }
+
+    /**
+     * stripes sampling the shaded atlas textures, shared with the other passes
+     */
+    WallStripes(MipShades shades, TextureImages images) {
+        this.shades = shades;
+        this.images = images;
+        this.lightLevels = shades.lightLevels();
+        this.textureWidth = shades.width(0, PILAR_TEXTURE);
+        this.textureHeight = shades.height(0, PILAR_TEXTURE);
+    }
+
+    static Color fieldColor(int field) {
+        switch(field)
+        {
+            case 1:  return  Color.RED;
+            case 2:  return  Color.GREEN;
+            case 3:  return  Color.BLUE;
+            case 4:  return  Color.WHITE;
+            default: return  Color.YELLOW;
+        }
+    }
+
+    /**
+     * atlas id of the texture of a WorldMap.TEXTURED material, -1 for other materials and ids beyond the atlas
+     */
+    int texturedId(int cell) {
+        var id = cell - WorldMap.TEXTURED;
+        return id >= 0 && id < shades.count() ? id : -1;
+    }
+
+    /**
+     * draws the wall stripe of screen column x for the ray cast hit in column x of buf
+     * @param cell material of the hit cell
+     */
+    void draw(Graphics2D g, int x, double h, int cell, RayHitBuffer buf) {
+        var perpDist = buf.perpDist(x);
+        var castSide = buf.side(x);
+
+        //Calculate height of line to draw on screen
+        double lineHeight = (h / perpDist);
+
+        //calculate lowest and highest pixel to fill in current stripe
+        double drawStartClip = 0;
+        double drawEndClip = 0;
+        double factorStart = 0;
+        double factorEnd = 1;
+        double drawStart = -lineHeight / 2 + h / 2;
+        double drawEnd = lineHeight / 2 + h / 2;
+        if(drawStart < 0) {
+            drawStartClip = -drawStart;
+            factorStart = drawStartClip/lineHeight;
+            drawStart = 0;
+        }
+        if(drawEnd >= h) {
+            //drawEndClip = drawEnd - (h-1.0);
+            //factorEnd = 1.0 - drawEndClip/lineHeight;
+            //drawEnd = h-1;
+            drawEndClip = drawEnd - (h);
+            factorEnd = 1.0 - drawEndClip/lineHeight;
+            drawEnd = h;
+        }
+
+
+        double castCellX = buf.texU(x) * textureWidth;
+        double castCellStripeWidth = 1;
+        double texStart = MathUtils.lerp(0, textureHeight, factorStart);
+        double texEnd = MathUtils.lerp(0, textureHeight, factorEnd);
+
+        //choose wall color
+        switch (cell) {
+            case WorldMap.SPACE:
+                //transparent
+                break;
+            case WorldMap.PILAR:
+            {
+                g.drawImage(images.get(PILAR_TEXTURE), x, (int)drawStart, x+1, (int)drawEnd,
+                            (int)castCellX, 0, (int)(castCellX + castCellStripeWidth), textureHeight,
+                            null);
+            }
+            break;
+            case WorldMap.OUTERWALL:
+            {
+                g.drawImage(images.get(OUTERWALL_TEXTURE), x, (int)drawStart, x+1, (int)drawEnd,
+                            (int)castCellX, 0, (int)(castCellX + castCellStripeWidth), textureHeight,
+                            null);
+            }
+            break;
+            case WorldMap.HOUSEWALL:
+            {
+                g.drawImage(images.get(HOUSEWALL_TEXTURE), x, (int)drawStart, x+1, (int)drawEnd,
+                            (int)castCellX, (int)(texStart), (int)(castCellX + castCellStripeWidth), (int)(texEnd),
+                            null);
+            }
+            break;
+            case WorldMap.COTTAGEWALL:
+            {
+                //g.drawImage(texRedX, x, (int)drawStart, x+1, (int)drawEnd,
+                g.drawImage(images.get(COTTAGEWALL_TEXTURE), x,(int)Math.round(drawStart), x+1,(int)Math.round(drawEnd),
+                            (int)castCellX, (int)(texStart), (int)(castCellX + castCellStripeWidth), (int)(texEnd),
+                            null);
+            }
+            break;
+
+            default:
+                var textured = texturedId(cell);
+                if(textured >= 0) {
+                    g.drawImage(images.get(textured), x, (int)drawStart, x+1, (int)drawEnd,
+                                (int)castCellX, 0, (int)(castCellX + castCellStripeWidth), textureHeight,
+                                null);
+                    break;
+                }
+                // if no texture maybe a color is provided
+                Color color = fieldColor(cell);
+
+                //give x and y sides different brightness
+                if(castSide == RayHit.VER) {color = color.darker();}
+
+                //draw the pixels of the stripe as a vertical line
+                g.setColor(color);
+                g.drawLine(x, (int)drawStart, x, (int)drawEnd);
+                break;
+        }
+    }
+
+    /**
+     * same stripe as draw(Graphics2D, ...), written into pixels of a TYPE_INT_ARGB image with h rows
+     * @param stride pixels per image row
+     */
+    void draw(int[] pixels, int stride, int x, int h, int cell, RayHitBuffer buf) {
+        draw(pixels, x, stride, x, h, cell, buf);
+    }
+
+    /**
+     * same stripe written into column x of a ColumnBuffer, the rows of the column are next to each other
+     */
+    void draw(ColumnBuffer columns, int x, int h, int cell, RayHitBuffer buf) {
+        draw(columns.pixels(), columns.offset(x), 1, x, h, cell, buf);
+    }
+
+    /**
+     * @param offset index of row 0 of the column in pixels
+     * @param step distance of two rows of the column in pixels
+     */
+    private void draw(int[] pixels, int offset, int step, int x, int h, int cell, RayHitBuffer buf) {
+        var lineHeight = h / buf.perpDist(x);
+        var factorStart = 0.0;
+        var factorEnd = 1.0;
+        var drawStart = -lineHeight / 2 + h / 2.0;
+        var drawEnd = lineHeight / 2 + h / 2.0;
+        if(drawStart < 0) {
+            factorStart = -drawStart/lineHeight;
+            drawStart = 0;
+        }
+        if(drawEnd >= h) {
+            factorEnd = 1.0 - (drawEnd - h)/lineHeight;
+            drawEnd = h;
+        }
+        var u = (int)(buf.texU(x) * textureWidth);
+        var brightness = Math.min(1.0, 1.0/buf.perpDist(x));
+        var texStart = (int)MathUtils.lerp(0, textureHeight, factorStart);
+        var texEnd = (int)MathUtils.lerp(0, textureHeight, factorEnd);
+
+        switch (cell) {
+            case WorldMap.SPACE:
+                break;
+            case WorldMap.PILAR:
+                column(pixels, offset, step, (int)drawStart, (int)drawEnd, h, PILAR_TEXTURE, brightness, u, 0, textureHeight);
+                break;
+            case WorldMap.OUTERWALL:
+                column(pixels, offset, step, (int)drawStart, (int)drawEnd, h, OUTERWALL_TEXTURE, brightness, u, 0, textureHeight);
+                break;
+            case WorldMap.HOUSEWALL:
+                column(pixels, offset, step, (int)drawStart, (int)drawEnd, h, HOUSEWALL_TEXTURE, brightness, u, texStart, texEnd);
+                break;
+            case WorldMap.COTTAGEWALL:
+                column(pixels, offset, step, (int)Math.round(drawStart), (int)Math.round(drawEnd), h, COTTAGEWALL_TEXTURE, brightness, u, texStart, texEnd);
+                break;
+            default:
+                var textured = texturedId(cell);
+                if(textured >= 0) {
+                    column(pixels, offset, step, (int)drawStart, (int)drawEnd, h, textured, brightness, u, 0, textureHeight);
+                    break;
+                }
+                var color = fieldColor(cell);
+                if(buf.side(x) == RayHit.VER) {color = color.darker();}
+                var argb = lightLevels == 1 ? color.getRGB() : ShadeTable.shade(color.getRGB(), (int)(brightness*65536));
+                // drawLine includes both end points
+                for(int y=(int)drawStart, end=Math.min((int)drawEnd, h-1); y<=end; y++) {
+                    pixels[offset + y*step] = argb;
+                }
+                break;
+        }
+    }
+
+    /**
+     * maps the (shaded) texture rows [texStart,texEnd) of texture column u onto the screen rows [drawStart,drawEnd) of
+     * the column at offset, sampled at the pixel centers like drawImage does. the texture row steps by texStep = rows/pixels
+     * in 32.32 fixed point, truncated like the scaled blit loops of java2d, so rows land on the same texel where
+     * a pixel center is (nearly) on a texel border.
+     *
+     * with mipmaps a stripe that steps over more than one texture row per pixel reads the mip level of its texStep,
+     * at the level 0 row and column shifted by the level, so near stripes are drawn exactly as without
+     */
+    private void column(int[] pixels, int offset, int step, int drawStart, int drawEnd, int h,
+                        int texture, double brightness, int u, int texStart, int texEnd) {
+        if(drawEnd <= drawStart || texEnd <= texStart || u >= textureWidth) return; // drawImage skips source columns outside the texture
+        var texStep = ((long)(texEnd - texStart) << 32) / (drawEnd - drawStart);
+        var texPos = ((long)texStart << 32) + (texStep >> 1); // first pixel center is half a step in
+        var lastRow = texEnd - 1;
+        var level = shades.levelOf((double)(texEnd - texStart)/(drawEnd - drawStart));
+        var texels = shades.shaded(level, texture, brightness);
+        var texColumn = (u >> level)*shades.height(level, texture); // column major, the stripe reads one texture column
+        if(shades.indexed()) {
+            var indices = shades.indices(level, texture);
+            for(int y=drawStart, end=Math.min(drawEnd, h), i=offset + drawStart*step; y<end; y++, i+=step) {
+                var v = Math.min((int)(texPos >>> 32), lastRow) >> level;
+                pixels[i] = texels[indices[texColumn + v] & 0xFF]; // shaded palette entries are opaque
+                texPos += texStep;
+            }
+            return;
+        }
+        for(int y=drawStart, end=Math.min(drawEnd, h), i=offset + drawStart*step; y<end; y++, i+=step) {
+            var v = Math.min((int)(texPos >>> 32), lastRow) >> level;
+            pixels[i] = texels[texColumn + v]; // shaded texels are opaque
+            texPos += texStep;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.rsh.rycst.game;
+
+final class ArrayMapStore implements MapStore {
+    private final int[][] map;
+
+    ArrayMapStore(int[][] map) {
+        this.map = map;
+    }
+
+    @Override
+    public int width() {
+        return map.length > 0 ? map[0].length : 0;
+    }
+
+    @Override
+    public int height() {
+        return map.length;
+    }
+
+    @Override
+    public int get(int x, int y) {
+        return map[y][x];
+    }
+
+    @Override
+    public void set(int x, int y, int field) {
+        map[y][x] = field;
+    }
+}
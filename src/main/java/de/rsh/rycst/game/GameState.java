@@ -4,6 +4,9 @@ import java.util.Map;
 import java.util.function.Function;
 import java.util.Optional;
 
+import de.rsh.game.DistanceField;
+import de.rsh.game.OccupancyGrid;
+import de.rsh.game.RayCaster;
 import de.rsh.utils.Pair;
 
 public class GameState {
@@ -48,13 +51,51 @@ public class GameState {
     long curTime = 0; //time of current frame
     long dt = 0; //time passed till previous frame
 
+    long version = 0; // bumped by every change of the picture: position, direction, camera plane, map
+    long mapVersion = 0; // bumped by every change of the map
 
-    int[][] map;
+
+    public static final long MAX_DERIVED_GRID_CELLS = 1L << 24; // 4096x4096, bigger maps are tested on the store
+
+    MapStore map; // material ids, change cells only with setMap so the derived grids follow
+    OccupancyGrid occupancy; // hit test bits, follows every change of map, null for huge maps
+    DistanceField distanceField; // empty space skipping, follows every change of map, null for huge maps
+    RayCaster.IntIntPredicate hitTest;
 
     public GameState(double posX, double posY, int[][] map) {
+        this(posX, posY, MapStore.of(map));
+    }
+
+    /**
+     * the occupancy bits and the distance field are only built for maps up to MAX_DERIVED_GRID_CELLS cells, so
+     * the heap does not grow with the level for file backed maps
+     */
+    public GameState(double posX, double posY, MapStore map) {
         this.posX = posX;
         this.posY = posY;
         this.map = map;
+        if((long)map.width()*map.height() <= MAX_DERIVED_GRID_CELLS) {
+            this.occupancy = new OccupancyGrid(map.width(), map.height(), (x, y) -> map.get(x, y) != WorldMap.SPACE);
+            this.distanceField = new DistanceField(map.width(), map.height(), occupancy);
+            this.hitTest = occupancy;
+        } else {
+            this.hitTest = this::isSpace; // outside of the map counts as solid like in the occupancy bits
+        }
+    }
+
+    /**
+     * changes whenever something the renderer shows changes (position, direction, camera plane, map cells), equal
+     * versions mean an identical frame, so an idle camera does not have to be rendered again
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * changes whenever a cell of the map changes (setMap), data computed from the map is stale once it changed
+     */
+    public long mapVersion() {
+        return mapVersion;
     }
 
     public Optional<Double> getFPS() {
@@ -85,27 +126,54 @@ public class GameState {
     public double ncpY() {
         return ncpY;
     }
+    /**
+     * material of cell (x,y), cells outside the map are OUTERWALL: the hit test stops rays there, also on maps
+     * without a solid border
+     */
     public int map(int x, int y) {
-        return map[y][x];
+        if(Integer.compareUnsigned(x, map.width()) >= 0 || Integer.compareUnsigned(y, map.height()) >= 0) return WorldMap.OUTERWALL;
+        return map.get(x, y);
+    }
+    /**
+     * changes a cell of the map, derived grids are updated incrementally
+     */
+    public GameState setMap(int x, int y, int field) {
+        map.set(x, y, field);
+        version++;
+        mapVersion++;
+        if(occupancy != null) {
+            occupancy.set(x, y, field != WorldMap.SPACE);
+            distanceField.update(x, y);
+        }
+        return this;
+    }
+    /**
+     * hit test for the ray casters, the occupancy bits if there are any. the material is only needed after a hit: map(x,y)
+     */
+    public RayCaster.IntIntPredicate hitTest() {
+        return hitTest;
+    }
+    public Optional<OccupancyGrid> occupancy() {
+        return Optional.ofNullable(occupancy);
+    }
+    public Optional<DistanceField> distanceField() {
+        return Optional.ofNullable(distanceField);
     }
     public int rowWidth(int y) {
         int res = 0;
         if(0 <= y && y < mapHeight()) {
-            res = map[y].length;
+            res = map.width();
         }
         return res;
     }
     public int mapHeight() {
-        return map.length;
+        return map.height();
     }
     public int mapWidth() {
-        int res = 0;
-        if(map.length > 0) {
-            res = map[0].length;
-        }
-        return res;
+        return map.width();
     }
     public boolean isSpace(int x, int y) {
+        if(occupancy != null) return occupancy.test(x, y);
         return (map(x,y) != WorldMap.SPACE);
     }
 
@@ -152,15 +220,20 @@ public class GameState {
         var dts = nanoToSecond(dt);
         v += a*dts;
         v = Math.clamp(v, 0, V_MAX);
+        var oldPosX = posX;
+        var oldPosY = posY;
         //if(map[(int)(posX + dirX * d * v)][(int)posY] == WorldMap.SPACE) posX += dirX * d * v; else stop();
         //if(map[(int)posX][(int)(posY + dirY  * d * v)] == WorldMap.SPACE) posY += dirY * d * v; else stop();
-        if(map[(int)posY][(int)(posX + dirX * d * v)] == WorldMap.SPACE) posX += dirX * d * v; else stop();
-        if(map[(int)(posY + dirY  * d * v)][(int)posX] == WorldMap.SPACE) posY += dirY * d * v; else stop();
+        if(map((int)(posX + dirX * d * v), (int)posY) == WorldMap.SPACE) posX += dirX * d * v; else stop();
+        if(map((int)posX, (int)(posY + dirY  * d * v)) == WorldMap.SPACE) posY += dirY * d * v; else stop();
+        if(posX != oldPosX || posY != oldPosY) version++;
         return this;
     }
     private GameState turn(long t, long dt) {
         //both camera direction and camera plane must be rotated
         var r = alpha*dt;
+        if(r == 0) return this;
+        version++;
         double oldDirX = dirX;
         dirX = dirX * Math.cos(r) - dirY * Math.sin(r);
         dirY = oldDirX * Math.sin(r) + dirY * Math.cos(r);
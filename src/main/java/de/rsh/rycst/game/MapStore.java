@@ -0,0 +1,18 @@
+package de.rsh.rycst.game;
+
+/**
+ * the cells of a level, material ids as in WorldMap, x is the column and y the row
+ */
+public interface MapStore {
+    int width();
+    int height();
+    int get(int x, int y);
+    void set(int x, int y, int field);
+
+    /**
+     * the whole grid on heap, rows of the array are y
+     */
+    static MapStore of(int[][] map) {
+        return new ArrayMapStore(map);
+    }
+}
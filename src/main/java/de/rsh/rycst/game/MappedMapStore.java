@@ -0,0 +1,191 @@
+package de.rsh.rycst.game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * a level in a file, for maps which do not fit on the heap (64k x 64k cells are 4GB).
+ * the file holds one byte per cell in chunks of 256x256 cells, every chunk is one contiguous block, so a chunk
+ * is mapped into memory (FileChannel.map) only when a ray or the camera reaches it the first time. at most
+ * maxResidentChunks chunks stay mapped, a chunk not used since the last sweep is dropped first (clock, second chance),
+ * it is mapped again from the page cache when needed. so the chunks every ray crosses, e.g. the one of the camera,
+ * stay mapped. only the chunk table and the use bits are on heap, a reference and a byte per chunk.
+ *
+ * file layout: header of HEADER_BYTES (magic, version, width, height, chunk shift as ints), then the chunks row by
+ * row, cells row major inside a chunk. changes with set(x,y) are written through to the file.
+ * get and set can be called from several threads, set of the same cell has to be synchronized by the caller.
+ */
+public final class MappedMapStore implements MapStore, AutoCloseable {
+    public static final int MAGIC = 0x5259434d; // "RYCM"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int CHUNK_SHIFT = 8; // 256x256 cells per chunk
+    private static final int CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK - 1;
+    private static final int CHUNK_BYTES = CHUNK*CHUNK;
+    public static final int DEFAULT_RESIDENT_CHUNKS = 1024; // 64MB of mapped address space
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int chunksPerRow;
+    private final int maxResidentChunks;
+    private final AtomicReferenceArray<MappedByteBuffer> chunks;
+    // chunk was used since the clock hand passed it. only written when it is not set yet, so the rays of all threads
+    // read the cache lines of the bits shared and do not write them on every cell. written without lock, a lost bit
+    // only makes the choice of the chunk to drop less exact
+    private final boolean[] used;
+    private final int[] resident; // the mapped chunks, guarded by this
+    private int residentCount = 0; // guarded by this
+    private int hand = 0; // next slot of resident the clock looks at, guarded by this
+    private volatile long chunkLoads = 0; // written under this
+
+    private MappedMapStore(FileChannel channel, int width, int height, int maxResidentChunks) {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.chunksPerRow = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.maxResidentChunks = maxResidentChunks;
+        this.chunks = new AtomicReferenceArray<>(chunksPerRow * ((height + CHUNK_MASK) >>> CHUNK_SHIFT));
+        this.used = new boolean[chunks.length()];
+        this.resident = new int[Math.min(maxResidentChunks, chunks.length())];
+    }
+
+    /**
+     * creates a new level file with all cells WorldMap.SPACE (a sparse file, disk is only used for written chunks)
+     */
+    public static MappedMapStore create(Path file, int width, int height) {
+        if(width <= 0 || height <= 0) throw new IllegalArgumentException("map size " + width + "x" + height);
+        try(var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                           StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(CHUNK_SHIFT).rewind();
+            channel.write(header, 0);
+            var chunkCount = (long)((width + CHUNK_MASK) >>> CHUNK_SHIFT) * ((height + CHUNK_MASK) >>> CHUNK_SHIFT);
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + chunkCount*CHUNK_BYTES - 1);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return open(file);
+    }
+
+    public static MappedMapStore open(Path file) {
+        return open(file, DEFAULT_RESIDENT_CHUNKS);
+    }
+
+    public static MappedMapStore open(Path file, int maxResidentChunks) {
+        try {
+            var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if(header.remaining() < 20 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IllegalArgumentException(file + " is no map file");
+            }
+            var width = header.getInt();
+            var height = header.getInt();
+            if(header.getInt() != CHUNK_SHIFT) {
+                channel.close();
+                throw new IllegalArgumentException(file + " has an unsupported chunk size");
+            }
+            return new MappedMapStore(channel, width, height, Math.max(1, maxResidentChunks));
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    /**
+     * x and y are not checked, the callers test them against the map size (GameState.map). outside the map the
+     * result is undefined, a cell of a chunk or an IndexOutOfBoundsException
+     */
+    @Override
+    public int get(int x, int y) {
+        return chunk(x, y).get(((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)) & 0xFF;
+    }
+
+    /**
+     * @param field material id 0..255
+     */
+    @Override
+    public void set(int x, int y, int field) {
+        Objects.checkIndex(x, width);
+        Objects.checkIndex(y, height);
+        if((field & ~0xFF) != 0) throw new IllegalArgumentException("material id " + field + " does not fit into a byte");
+        chunk(x, y).put(((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK), (byte)field);
+    }
+
+    /**
+     * number of chunks mapped so far, including chunks mapped again after they were dropped
+     */
+    public long chunkLoads() {
+        return chunkLoads;
+    }
+
+    public synchronized int residentChunks() {
+        return residentCount;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close(); // the mappings stay valid until the buffers are collected
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer chunk(int x, int y) {
+        var i = (y >>> CHUNK_SHIFT)*chunksPerRow + (x >>> CHUNK_SHIFT);
+        var chunk = chunks.get(i);
+        if(chunk == null) return load(i);
+        if(!used[i]) used[i] = true;
+        return chunk;
+    }
+
+    private synchronized MappedByteBuffer load(int i) {
+        var chunk = chunks.get(i);
+        if(chunk != null) return chunk; // another thread was faster
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + (long)i*CHUNK_BYTES, CHUNK_BYTES);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var slot = residentCount;
+        if(residentCount < resident.length) {
+            residentCount++;
+        } else {
+            // drop the first chunk the hand finds unused, the used ones get a second chance. readers holding the buffer
+            // of the dropped chunk can still use it
+            while(used[resident[hand]]) {
+                used[resident[hand]] = false;
+                hand = (hand + 1) % resident.length;
+            }
+            slot = hand;
+            hand = (hand + 1) % resident.length;
+            chunks.set(resident[slot], null);
+        }
+        resident[slot] = i;
+        chunkLoads++;
+        used[i] = false; // the load is no use, the chunk has to be used again before the hand comes back
+        chunks.set(i, chunk);
+        return chunk;
+    }
+}
@@ -9,6 +9,9 @@ public class WorldMap {
     public static final int PILAR = 3;
     public static final int HOUSEWALL = 4;
     public static final int TREASURE = 5;
+    // materials from TEXTURED on are walls with texture id material - TEXTURED of the renderer's TextureAtlas, e.g. the
+    // textures of an asset pack (rycst.assetPack) after the built in ones
+    public static final int TEXTURED = 16;
 
     public static final int mapWidth = 24;
     public static final int mapHeight = 24;
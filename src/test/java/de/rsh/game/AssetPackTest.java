@@ -0,0 +1,116 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * a pack written and opened again holds the same texels, column major, and replaces textures of the atlas by name
+ */
+public class AssetPackTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writtenTexturesReadBack() throws Exception
+    {
+        var file = folder.newFile("textures.pack").toPath();
+        var bricks = Texture.RED_BRICKS.get(64, 64);
+        var small = new Texture.Image(2, 3, new int[] {1, 2, 3, 4, 5, 6});
+        AssetPack.write(file, Map.of("zzz", small, Texture.RED_BRICKS.name(), bricks));
+
+        try(var pack = AssetPack.open(file)) {
+            assertEquals(List.of("RED_BRICKS", "zzz"), pack.names());
+            assertEquals(Optional.of(1), pack.id("zzz"));
+            assertFalse(pack.id("nope").isPresent());
+            assertEquals(2, pack.width(1));
+            assertEquals(3, pack.height(1));
+            var texels = pack.texels(1);
+            assertTrue(texels.isReadOnly());
+            assertEquals(6, texels.remaining());
+            assertEquals(4, texels.get(1*3 + 1)); // (u=1, v=1) column major
+            assertEquals(List.of(1, 2, 3, 4, 5, 6), Arrays.stream(pack.image(1).arr()).boxed().toList());
+            assertEquals(bricks.pix(17, 5), pack.texels(0).get(17*64 + 5));
+        }
+    }
+
+    @Test
+    public void packTexturesReplaceTheBuiltInOnes() throws Exception
+    {
+        var file = folder.newFile("override.pack").toPath();
+        var red = new int[64*64];
+        Arrays.fill(red, 0xFF0000);
+        AssetPack.write(file, Map.of(Texture.HORIZ_BLUE.name(), new Texture.Image(64, 64, red)));
+
+        try(var pack = AssetPack.open(file)) {
+            var atlas = TextureAtlas.of(64, 64, pack);
+            var plain = TextureAtlas.of(64, 64);
+            assertEquals(0xFF0000, atlas.pix(Texture.HORIZ_BLUE.id(), 10, 40));
+            assertEquals(plain.pix(Texture.RED_BRICKS.id(), 10, 40), atlas.pix(Texture.RED_BRICKS.id(), 10, 40));
+        }
+    }
+
+    @Test
+    public void otherPackTexturesFollowTheBuiltInOnes() throws Exception
+    {
+        var file = folder.newFile("extra.pack").toPath();
+        var green = new int[64*64];
+        Arrays.fill(green, 0x00FF00);
+        var blue = new int[64*64];
+        Arrays.fill(blue, 0x0000FF);
+        AssetPack.write(file, Map.of("b_green", new Texture.Image(64, 64, green),
+                                     "a_blue", new Texture.Image(64, 64, blue),
+                                     Texture.TEST2.name(), Texture.TEST2.get(64, 64)));
+
+        try(var pack = AssetPack.open(file)) {
+            var atlas = TextureAtlas.of(64, 64, pack);
+            var first = Texture.values().length;
+            assertEquals(first + 2, atlas.count());
+            assertEquals(List.of("a_blue", "b_green"), TextureAtlas.names(pack).subList(first, first + 2));
+            assertEquals(0x0000FF, atlas.pix(first, 3, 7));
+            assertEquals(0x00FF00, atlas.pix(first + 1, 63, 0));
+            assertEquals(64*64, atlas.texels(first).remaining());
+            assertTrue("the mapped block, no heap copy", atlas.texels(first).isDirect());
+            assertFalse(atlas.texels(Texture.RED_BRICKS.id()).isDirect());
+        }
+    }
+
+    @Test
+    public void indexedLevelsAreStored() throws Exception
+    {
+        var file = folder.newFile("indexed.pack").toPath();
+        var bricks = Texture.RED_BRICKS.get(64, 64);
+        var small = new Texture.Image(2, 3, new int[] {1, 2, 3, 4, 5, 6});
+        AssetPack.write(file, Map.of(Texture.RED_BRICKS.name(), bricks, "zzz", small));
+
+        try(var pack = AssetPack.open(file)) {
+            var levels = pack.indexed(0);
+            assertEquals(7, pack.levels(0)); // 64x64 down to 1x1
+            assertEquals(7, levels.length);
+            var mips = TextureAtlas.of(64, 64).mipLevels();
+            var id = Texture.RED_BRICKS.id();
+            for(int level=0; level<levels.length; level++) {
+                assertFalse(levels[level].quantized());
+                assertTrue("mapped, no heap copy", levels[level].indices().isDirect());
+                assertEquals(mips[level].width(id), levels[level].width());
+                for(int u=0; u<levels[level].width(); u++) {
+                    for(int v=0; v<levels[level].height(); v++) {
+                        assertEquals(mips[level].pix(id, u, v), levels[level].pix(u, v));
+                    }
+                }
+            }
+            assertEquals(1, pack.levels(1)); // no power of two, no mip levels
+            assertEquals(4, pack.indexed(1)[0].pix(1, 1));
+        }
+    }
+}
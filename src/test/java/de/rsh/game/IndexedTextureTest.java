@@ -0,0 +1,61 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * textures with up to 256 colours keep them exactly, textures with more are quantized to 256 close colours
+ */
+public class IndexedTextureTest
+{
+    @Test
+    public void fewColoursStayExact()
+    {
+        var atlas = TextureAtlas.of(64, 64);
+        for(var texture : Texture.values()) {
+            var id = texture.id();
+            var texels = new int[64*64];
+            atlas.texels(id).get(0, texels);
+            var indexed = IndexedTexture.of(64, 64, texels);
+            assertEquals(64*64, indexed.indices().remaining());
+            assertFalse(texture.name(), indexed.quantized());
+            for(int u=0; u<64; u++) {
+                for(int v=0; v<64; v++) {
+                    assertEquals(atlas.pix(id, u, v), indexed.pix(u, v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void manyColoursAreQuantized()
+    {
+        var random = new Random(3);
+        var texels = new int[64*64];
+        for(int i=0; i<texels.length; i++) {
+            texels[i] = 0xFF000000 | random.nextInt(0x1000000); // about 4096 colours
+        }
+        var indexed = IndexedTexture.of(64, 64, texels);
+        assertTrue(indexed.quantized());
+        var palette = ColorQuantizer.palette(texels, 0, texels.length, IndexedTexture.PALETTE_SIZE);
+        assertEquals(IndexedTexture.PALETTE_SIZE, palette.length);
+        long error = 0;
+        for(int u=0; u<64; u++) {
+            for(int v=0; v<64; v++) {
+                var a = texels[u*64 + v];
+                var b = indexed.pix(u, v);
+                assertEquals(0xFF, b >>> 24);
+                for(int shift=0; shift<24; shift+=8) {
+                    error += Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF));
+                }
+            }
+        }
+        // noise is the worst case for a palette, median cut still lands every texel near its colour
+        assertTrue("mean channel error " + error/(3.0*texels.length), error/(3.0*texels.length) < 20);
+    }
+}
@@ -0,0 +1,41 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * every level averages 2x2 texels of the one before, the level follows log2 of the texels per pixel
+ */
+public class MipMapTest
+{
+    @Test
+    public void levelsAverageTheTexels()
+    {
+        var texels = new int[] {
+            0x000000, 0x040404, 0xFF0000, 0xFF0000,
+            0x080808, 0x0C0C0C, 0xFF0000, 0xFF0000,
+            0x0000FF, 0x0000FF, 0x00FF00, 0x00FF00,
+            0x0000FF, 0x0000FF, 0x00FF00, 0x00FF00,
+        };
+        var mips = new MipMap(texels, 4, 4);
+        assertEquals(3, mips.levels());
+        assertArrayEquals(texels, mips.level(0));
+        assertArrayEquals(new int[] {0x060606, 0xFF0000, 0x0000FF, 0x00FF00}, mips.level(1));
+        assertArrayEquals(new int[] {0x414141}, mips.level(2)); // (6 + 255 + 0 + 0 + 2)/4 = 65 in every channel
+    }
+
+    @Test
+    public void levelOfTexelsPerPixel()
+    {
+        var mips = new MipMap(new int[64*64], 64, 64);
+        assertEquals(7, mips.levels());
+        assertEquals(0, mips.levelOf(0.3));
+        assertEquals(0, mips.levelOf(1.99));
+        assertEquals(1, mips.levelOf(2));
+        assertEquals(2, mips.levelOf(7.5));
+        assertEquals(6, mips.levelOf(1e9));
+        assertEquals(0, mips.levelOf(Double.NaN));
+    }
+}
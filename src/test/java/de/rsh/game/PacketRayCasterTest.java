@@ -0,0 +1,48 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.rsh.rycst.game.GameState;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * the packet caster has to hit the same cells as the scalar lodev DDA
+ */
+public class PacketRayCasterTest
+{
+    @Test
+    public void packetHitsSameCellsAsScalar()
+    {
+        var gameState = new GameState(12, 12, WorldMap.map);
+        var random = new Random(4711);
+        var bands = new ParallelBands(1);
+        final int width = 1021; // not a multiple of the lane count, covers the scalar tail columns
+        var scalar = new RayHitBuffer(width);
+        var packet = new RayHitBuffer(width);
+        var poses = 0;
+        while(poses < 500) {
+            var posX = 1 + random.nextDouble()*(WorldMap.mapWidth - 2);
+            var posY = 1 + random.nextDouble()*(WorldMap.mapHeight - 2);
+            if(gameState.isSpace((int)posX, (int)posY)) continue; // inside a wall
+            var angle = random.nextDouble()*2*Math.PI;
+            var dirX = Math.cos(angle);
+            var dirY = Math.sin(angle);
+            var planeX = -dirY*0.66;
+            var planeY = dirX*0.66;
+            RayCaster.castColumns_lodev(RayCaster.Engine.SCALAR, width, posX, posY, dirX, dirY, planeX, planeY, gameState::isSpace, scalar, bands);
+            RayCaster.castColumns_lodev(RayCaster.Engine.PACKET, width, posX, posY, dirX, dirY, planeX, planeY, gameState::isSpace, packet, bands);
+            for(int x=0; x<width; x++) {
+                var msg = String.format("pose %d column %d", poses, x);
+                assertEquals(msg, scalar.cellX(x), packet.cellX(x));
+                assertEquals(msg, scalar.cellY(x), packet.cellY(x));
+                assertEquals(msg, scalar.side(x), packet.side(x));
+                assertEquals(msg, scalar.perpDist(x), packet.perpDist(x), 0.0);
+            }
+            poses++;
+        }
+    }
+}
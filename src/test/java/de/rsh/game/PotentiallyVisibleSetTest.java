@@ -0,0 +1,65 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * the sets keep the cells next to the sampled ones, a corrupt cache file is computed again
+ */
+public class PotentiallyVisibleSetTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // two rooms joined by a door at (4, 2), everything outside the grid is solid
+    private static final RayCaster.IntIntPredicate ROOMS = (x, y) -> x == 4 && y != 2;
+
+    @Test
+    public void setsAreGrownByOneCell()
+    {
+        var pvs = PotentiallyVisibleSet.compute(9, 5, ROOMS, new ParallelBands(1));
+        assertTrue(pvs.visible(1, 2, 5, 2)); // through the door
+        // no ray from cell (1,2) through the door reaches (5,0), but it is next to (5,1) which the rays reach
+        assertTrue(pvs.visible(1, 2, 5, 0));
+        // from the corner the rays through the door go down, (6,0) is not next to any cell they reach
+        assertFalse(pvs.visible(0, 0, 6, 0));
+    }
+
+    @Test
+    public void corruptCacheFileIsComputedAgain() throws IOException
+    {
+        var bytes = new ByteArrayOutputStream();
+        var data = new DataOutputStream(bytes);
+        data.writeInt(0x52505653);
+        data.writeInt(2);
+        data.writeInt(9);
+        data.writeInt(5);
+        data.writeInt(-1); // set count
+        data.flush();
+        assertFalse(PotentiallyVisibleSet.read(new ByteArrayInputStream(bytes.toByteArray())).isPresent());
+
+        var dir = folder.getRoot().toPath();
+        var computed = PotentiallyVisibleSet.cached(dir, 9, 5, ROOMS, new ParallelBands(1));
+        try(var files = Files.list(dir)) {
+            var file = files.findFirst().get();
+            assertTrue(file.getFileName().toString().endsWith(".bin"));
+            Files.write(file, bytes.toByteArray());
+        }
+        var again = PotentiallyVisibleSet.cached(dir, 9, 5, ROOMS, new ParallelBands(1));
+        assertEquals(computed.distinctSets(), again.distinctSets());
+        try(var files = Files.list(dir)) {
+            assertEquals("no temporary file left", 1, files.count());
+        }
+    }
+}
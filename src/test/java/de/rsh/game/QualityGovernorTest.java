@@ -0,0 +1,46 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * slow frames push the scale down to minScale, fast frames bring it back up to maxScale, never beyond
+ */
+public class QualityGovernorTest
+{
+    private static final long BUDGET = 16_666_666;
+
+    @Test
+    public void staysWithinTheScaleRange()
+    {
+        var governor = new QualityGovernor(BUDGET, 0.5, 1.0);
+        assertEquals(1.0, governor.scale(), 0);
+
+        feed(governor, 2*BUDGET, QualityGovernor.WINDOW);
+        assertTrue("scale drops after one slow window", governor.scale() < 1.0);
+        feed(governor, 2*BUDGET, 10*QualityGovernor.WINDOW);
+        assertEquals(0.5, governor.scale(), 0);
+        assertEquals(960, governor.scaled(1920));
+
+        feed(governor, BUDGET/4, 100*QualityGovernor.WINDOW);
+        assertEquals(1.0, governor.scale(), 0);
+        assertEquals(1920, governor.scaled(1920));
+    }
+
+    @Test
+    public void keepsTheScaleWithinTheBudget()
+    {
+        var governor = new QualityGovernor(BUDGET, 0.25, 1.0);
+        feed(governor, BUDGET*7/10, 100*QualityGovernor.WINDOW); // between LOW and HIGH
+        assertEquals(1.0, governor.scale(), 0);
+    }
+
+    private static void feed(QualityGovernor governor, long nanos, int frames)
+    {
+        for(int i=0; i<frames; i++) {
+            governor.frame(nanos);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import de.rsh.rycst.game.GameState;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * a frame of drawGameField3D_lodev without trace must not allocate, neither in the DDA steps nor per column
+ */
+public class RayCasterAllocationTest
+{
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static long pixels = 0; // keeps the drawing callback from being optimized away
+
+    @Test
+    public void lodevFrameWithoutTraceDoesNotAllocate()
+    {
+        var threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        var allocation = (com.sun.management.ThreadMXBean)threads;
+        assumeTrue(allocation.isThreadAllocatedMemorySupported());
+        allocation.setThreadAllocatedMemoryEnabled(true);
+
+        var gameState = new GameState(12, 12, WorldMap.map);
+        RayCaster.IntIntPredicate hit = gameState.hitTest();
+        RayCaster.RayDrawingCallback draw = (side, x, y1, y2, mapX, mapY) -> pixels += y2 - y1;
+        Optional<RayCaster.TraceSink> noTrace = Optional.empty();
+
+        for(int frame=0; frame<200; frame++) { // warm up, let the jit compile the frame
+            frame(frame, hit, draw, noTrace);
+        }
+        var thread = Thread.currentThread().threadId();
+        var before = allocation.getThreadAllocatedBytes(thread);
+        for(int frame=0; frame<100; frame++) {
+            frame(frame, hit, draw, noTrace);
+        }
+        var allocated = allocation.getThreadAllocatedBytes(thread) - before;
+        assertEquals("bytes allocated by 100 frames", 0, allocated);
+    }
+
+    private static void frame(int frame, RayCaster.IntIntPredicate hit, RayCaster.RayDrawingCallback draw,
+                              Optional<RayCaster.TraceSink> trace)
+    {
+        var angle = frame*0.01;
+        var dirX = Math.cos(angle);
+        var dirY = Math.sin(angle);
+        RayCaster.drawGameField3D_lodev(WIDTH, HEIGHT, 12.5, 12.5, dirX, dirY, -dirY*0.66, dirX*0.66, hit, draw, trace);
+    }
+}
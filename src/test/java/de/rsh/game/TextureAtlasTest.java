@@ -0,0 +1,44 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * the atlas holds every texture column major, the mip levels keep the ids
+ */
+public class TextureAtlasTest
+{
+    @Test
+    public void texturesAreColumnMajor()
+    {
+        var atlas = TextureAtlas.of(64, 64);
+        assertEquals(Texture.values().length, atlas.count());
+        for(var texture : Texture.values()) {
+            var id = texture.id();
+            var image = texture.get(64, 64);
+            assertEquals(64*64, atlas.texels(id).remaining());
+            for(int u=0; u<64; u++) {
+                for(int v=0; v<64; v++) {
+                    assertEquals(image.pix(u, v), atlas.texels(id).get(64*u + v));
+                    assertEquals(image.pix(u, v), atlas.pix(id, u, v));
+                }
+            }
+            assertEquals(image.arr().length, atlas.rowMajor(id).length);
+            assertEquals(image.pix(5, 9), atlas.rowMajor(id)[64*9 + 5]);
+        }
+    }
+
+    @Test
+    public void mipLevelsKeepTheIds()
+    {
+        var atlas = TextureAtlas.of(64, 64);
+        var levels = atlas.mipLevels();
+        assertEquals(7, levels.length);
+        var id = Texture.VERT_YELLO.id(); // yellow/black stripes 16 texels wide
+        assertEquals(8, levels[3].width(id));
+        assertEquals(0xFFFF00, levels[3].pix(id, 1, 7) & 0xFFFFFF);
+        assertEquals(0, levels[3].pix(id, 2, 0) & 0xFFFFFF);
+        assertEquals(0x808000, levels[5].pix(id, 0, 0) & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,54 @@
+package de.rsh.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * only requested textures are generated, repeated requests are hits and the least recently used texture goes first
+ */
+public class TextureCacheTest
+{
+    private static final long TEXTURE_BYTES = 4*64*64;
+
+    @Test
+    public void generatesOnlyTheRequestedTexture()
+    {
+        var cache = new TextureCache(Long.MAX_VALUE);
+        var bricks = cache.get(Texture.RED_BRICKS, 64, 64);
+        assertEquals(1, cache.size());
+        assertEquals(TEXTURE_BYTES, cache.bytes());
+        assertSame(bricks, cache.get(Texture.RED_BRICKS, 64, 64));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+
+        cache.get(Texture.RED_BRICKS, 32, 32); // another size is another texture
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed()
+    {
+        var cache = new TextureCache(2*TEXTURE_BYTES);
+        var bricks = cache.get(Texture.RED_BRICKS, 64, 64);
+        var blue = cache.get(Texture.HORIZ_BLUE, 64, 64);
+        assertSame(bricks, cache.get(Texture.RED_BRICKS, 64, 64)); // blue is the older one now
+
+        cache.get(Texture.VERT_YELLO, 64, 64);
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertEquals(2*TEXTURE_BYTES, cache.bytes());
+        assertSame(bricks, cache.get(Texture.RED_BRICKS, 64, 64));
+        var blueAgain = cache.get(Texture.HORIZ_BLUE, 64, 64);
+        assertNotSame(blue, blueAgain);
+        assertEquals(blue.pix(3, 20), blueAgain.pix(3, 20));
+        assertEquals(4, cache.misses());
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+}
@@ -0,0 +1,43 @@
+package de.rsh.rycst;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.rsh.rycst.game.GameState;
+import de.rsh.rycst.game.WorldMap;
+
+/**
+ * a full frame without swing: the renderer draws the same frame into an int[] and into a BufferedImage
+ */
+public class RendererTest
+{
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 200;
+
+    @Test
+    public void rendersHeadless()
+    {
+        assertTrue("surefire runs with java.awt.headless=true", GraphicsEnvironment.isHeadless());
+        var renderer = new Renderer(new GameState(WorldMap.mapWidth/2.0, WorldMap.mapHeight/2.0, WorldMap.map), 64, 64);
+
+        var pixels = new int[WIDTH*HEIGHT];
+        renderer.render(pixels, WIDTH, HEIGHT);
+        var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        renderer.render(image);
+        var imagePixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+
+        assertArrayEquals(pixels, imagePixels);
+        assertTrue("every column hits a wall", renderer.hitBuffer().isPresent());
+        for(int x=0; x<WIDTH; x++) {
+            assertTrue("column " + x + " hits a wall", renderer.hitBuffer().get().isHit(x));
+        }
+        assertTrue("floor, ceiling and walls are drawn", Arrays.stream(pixels).distinct().count() > 100);
+    }
+}
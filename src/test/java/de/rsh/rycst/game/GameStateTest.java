@@ -0,0 +1,60 @@
+package de.rsh.rycst.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.rsh.game.DistanceField;
+
+/**
+ * the version only changes when the picture does, the derived grids follow the map
+ */
+public class GameStateTest
+{
+    private static final long FRAME = 1_000_000_000L/60;
+
+    @Test
+    public void versionChangesWithThePicture()
+    {
+        var map = Arrays.stream(WorldMap.map).map(int[]::clone).toArray(int[][]::new); // setMap writes through
+        var gameState = new GameState(12.5, 12.5, map);
+        var version = gameState.version();
+        for(int frame=0; frame<60; frame++) {
+            gameState.update(frame*FRAME, FRAME);
+        }
+        assertEquals("resting", version, gameState.version());
+
+        gameState.turnLeft().update(61*FRAME, FRAME);
+        assertNotEquals("turning", version, gameState.version());
+
+        gameState.stopTurning().update(62*FRAME, FRAME);
+        version = gameState.version();
+        gameState.update(63*FRAME, FRAME);
+        assertEquals("stopped turning", version, gameState.version());
+
+        gameState.setMap(1, 1, WorldMap.SPACE);
+        assertNotEquals("map changed", version, gameState.version());
+    }
+
+    @Test
+    public void distanceFieldFollowsSetMap()
+    {
+        var map = Arrays.stream(WorldMap.map).map(int[]::clone).toArray(int[][]::new);
+        var gameState = new GameState(12.5, 12.5, map);
+        gameState.setMap(5, 7, WorldMap.SPACE)
+                 .setMap(12, 12, 1)
+                 .setMap(3, 20, 1)
+                 .setMap(0, 0, WorldMap.SPACE) // border cell
+                 .setMap(12, 12, WorldMap.SPACE);
+        var updated = gameState.distanceField().get();
+        var rebuilt = new DistanceField(gameState.mapWidth(), gameState.mapHeight(), gameState.occupancy().get());
+        for(int y=0; y<gameState.mapHeight(); y++) {
+            for(int x=0; x<gameState.mapWidth(); x++) {
+                assertEquals("(" + x + "," + y + ")", rebuilt.dist(x, y), updated.dist(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.rsh.rycst.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.rsh.game.ParallelBands;
+import de.rsh.game.RayCaster;
+import de.rsh.game.RayHitBuffer;
+
+/**
+ * rays leave a file backed map without a border at its edge, chunks in use are not dropped
+ */
+public class MappedMapStoreTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void raysStopAtTheEdgeOfAnOpenMap()
+    {
+        var size = 4097; // above MAX_DERIVED_GRID_CELLS, the hit test reads the store
+        assertTrue((long)size*size > GameState.MAX_DERIVED_GRID_CELLS);
+        try(var store = MappedMapStore.create(folder.getRoot().toPath().resolve("open.map"), size, size)) {
+            var gameState = new GameState(size - 2.5, 2.5, store); // all cells SPACE, no border
+            assertFalse(gameState.occupancy().isPresent());
+            assertTrue(gameState.hitTest().test(-1, 5));
+            assertTrue(gameState.hitTest().test(5, size));
+            assertEquals(WorldMap.OUTERWALL, gameState.map(size, 5));
+
+            var buf = new RayHitBuffer(64);
+            // looking up and to the right, the rays leave through the top and the right edge
+            RayCaster.castColumns_lodev(RayCaster.Engine.SCALAR, buf.columns(), gameState.posX(), gameState.posY(),
+                                        0.7071, -0.7071, 0.4667, 0.4667, gameState.hitTest(), buf, new ParallelBands(1));
+            for(int x=0; x<buf.columns(); x++) {
+                assertTrue("column " + x, buf.cellX(x) == size || buf.cellY(x) == -1);
+                assertTrue("column " + x, buf.perpDist(x) < 4);
+            }
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedChunkIsDropped()
+    {
+        var chunk = 1 << MappedMapStore.CHUNK_SHIFT;
+        MappedMapStore.create(folder.getRoot().toPath().resolve("lru.map"), 4*chunk, chunk).close();
+        try(var store = MappedMapStore.open(folder.getRoot().toPath().resolve("lru.map"), 2)) {
+            store.get(0, 0);         // chunk 0
+            store.get(chunk, 0);     // chunk 1
+            for(int c=2; c<4; c++) {
+                store.get(0, 0);     // chunk 0 is in use all the time
+                store.get(c*chunk, 0);
+            }
+            store.get(0, 0);
+            assertEquals("chunk 0 mapped once", 4, store.chunkLoads());
+            assertEquals(2, store.residentChunks());
+        }
+    }
+}